@@ -1,12 +1,21 @@
 package ru.castroy10;
 
 import java.util.List;
+import java.util.Map;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import ru.castroy10.bot.AbstractBotLogic;
+import ru.castroy10.bot.BotHandle;
+import ru.castroy10.bot.ChatInfoCache;
 import ru.castroy10.bot.DefaultBotLogic;
+import ru.castroy10.bot.Priority;
 import ru.castroy10.bot.RouterBot;
+import ru.castroy10.bot.RouterBotOptions;
+import ru.castroy10.bot.RouterBotSession;
+import ru.castroy10.bot.UpdateInterceptor;
+import ru.castroy10.bot.outbox.Outbox;
+import ru.castroy10.bot.record.UpdateRecorder;
+import ru.castroy10.bot.transport.BotTransport;
 
 /**
  * Builder class for creating and starting a Telegram bot instance.
@@ -24,6 +33,21 @@ public class TgBotBuilder {
     private String botName;
     private List<AbstractBotLogic> logics;
     private DefaultBotLogic defaultLogic;
+    private List<UpdateInterceptor> interceptors;
+    private UpdateRecorder updateRecorder;
+    private boolean lazyUpdateParsing;
+    private int normalPerLow;
+    private Integer laneCapacity;
+    private Map<Long, Priority> chatPriorities;
+    private Outbox outbox;
+    private BotTransport transport;
+    private String baseUrl;
+    private Integer updatesLimit;
+    private Integer updatesTimeout;
+    private List<String> allowedUpdates;
+    private Integer parserThreads;
+    private Integer prefetchBatches;
+    private ChatInfoCache chatInfoCache;
 
     /**
      * Creates a new instance of TgBotBuilder.
@@ -78,28 +102,249 @@ public class TgBotBuilder {
         return this;
     }
 
+    /**
+     * Registers the interceptors executed before routing, in list order.
+     *
+     * @param interceptors the list of UpdateInterceptor instances (e.g. FloodGuard)
+     * @return the builder instance
+     */
+    public TgBotBuilder registerInterceptors(final List<UpdateInterceptor> interceptors) {
+        this.interceptors = interceptors;
+        return this;
+    }
+
+    /**
+     * Sets the recorder that writes every incoming update to an append-only log.
+     *
+     * @param updateRecorder the UpdateRecorder instance
+     * @return the builder instance
+     */
+    public TgBotBuilder recordUpdates(final UpdateRecorder updateRecorder) {
+        this.updateRecorder = updateRecorder;
+        return this;
+    }
+
+    /**
+     * Enables lazy parsing of getUpdates responses.
+     * Only the update ID, type and chat ID are read first, and updates without a matching handler
+     * are skipped before they are deserialized.
+     *
+     * @param lazyUpdateParsing true to enable lazy parsing
+     * @return the builder instance
+     */
+    public TgBotBuilder lazyUpdateParsing(final boolean lazyUpdateParsing) {
+        this.lazyUpdateParsing = lazyUpdateParsing;
+        return this;
+    }
+
+    /**
+     * Enables priority lanes for update dispatch and outbound calls.
+     * Logic handlers set their priority by overriding AbstractBotLogic.getPriority().
+     *
+     * @param normalPerLow the number of NORMAL updates or calls served for each LOW one when both are waiting
+     * @return the builder instance
+     */
+    public TgBotBuilder priorityLanes(final int normalPerLow) {
+        this.normalPerLow = normalPerLow;
+        return this;
+    }
+
+    /**
+     * Enables priority lanes for update dispatch and outbound calls with a bounded queue.
+     * When the queue is full, polling pauses until the dispatch thread catches up.
+     *
+     * @param normalPerLow the number of NORMAL updates or calls served for each LOW one when both are waiting
+     * @param laneCapacity the maximum number of updates, and separately of calls, waiting in the lanes
+     * @return the builder instance
+     */
+    public TgBotBuilder priorityLanes(final int normalPerLow, final int laneCapacity) {
+        this.normalPerLow = normalPerLow;
+        this.laneCapacity = laneCapacity;
+        return this;
+    }
+
+    /**
+     * Registers priority overrides for individual chats.
+     * Overrides take precedence over the priority of the logic handler.
+     *
+     * @param chatPriorities the map of chat ID to priority
+     * @return the builder instance
+     */
+    public TgBotBuilder registerChatPriorities(final Map<Long, Priority> chatPriorities) {
+        this.chatPriorities = chatPriorities;
+        return this;
+    }
+
+    /**
+     * Sets the durable outbox that journals calls made by logic handlers before they are sent.
+     *
+     * @param outbox the Outbox instance
+     * @return the builder instance
+     */
+    public TgBotBuilder outbox(final Outbox outbox) {
+        this.outbox = outbox;
+        return this;
+    }
+
+    /**
+     * Sets the HTTP transport for API calls and long polling.
+     *
+     * @param transport the BotTransport instance (e.g. JdkHttpBotTransport)
+     * @return the builder instance
+     */
+    public TgBotBuilder transport(final BotTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Sets the Bot API base URL, e.g. for a local Bot API server.
+     *
+     * @param baseUrl the base URL ending with "/bot", to which the token and method name are appended
+     * @return the builder instance
+     */
+    public TgBotBuilder baseUrl(final String baseUrl) {
+        this.baseUrl = baseUrl;
+        return this;
+    }
+
+    /**
+     * Sets the cache for chat info, chat member and administrator lookups made by logic handlers.
+     *
+     * @param chatInfoCache the ChatInfoCache instance
+     * @return the builder instance
+     */
+    public TgBotBuilder chatInfoCache(final ChatInfoCache chatInfoCache) {
+        this.chatInfoCache = chatInfoCache;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of updates returned by one getUpdates request.
+     *
+     * @param updatesLimit the batch limit, from 1 to 100 (default 100)
+     * @return the builder instance
+     */
+    public TgBotBuilder updatesLimit(final int updatesLimit) {
+        this.updatesLimit = updatesLimit;
+        return this;
+    }
+
+    /**
+     * Sets the long polling timeout of getUpdates requests.
+     *
+     * @param updatesTimeout the timeout in seconds, 0 for short polling (default 50)
+     * @return the builder instance
+     */
+    public TgBotBuilder updatesTimeout(final int updatesTimeout) {
+        this.updatesTimeout = updatesTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the update types requested from getUpdates, for example {@code chat_member},
+     * which Telegram does not send unless it is listed.
+     *
+     * @param allowedUpdates the update type names, empty for all types except the ones Telegram sends only on request
+     * @return the builder instance
+     */
+    public TgBotBuilder allowedUpdates(final List<String> allowedUpdates) {
+        this.allowedUpdates = allowedUpdates;
+        return this;
+    }
+
+    /**
+     * Enables pipelined polling. The next getUpdates request is sent as soon as the update IDs
+     * of the current batch are known, and parser threads deserialize batches while it waits.
+     * Telegram allows a single getUpdates request per bot at a time, so requests themselves are not parallel.
+     *
+     * @param parserThreads   the number of threads deserializing batches, at least 1
+     * @param prefetchBatches the number of batches fetched ahead of the bot before polling pauses, at least 1
+     * @return the builder instance
+     */
+    public TgBotBuilder pipelinedPolling(final int parserThreads, final int prefetchBatches) {
+        this.parserThreads = parserThreads;
+        this.prefetchBatches = prefetchBatches;
+        return this;
+    }
+
     /**
      * Builds the RouterBot instance without starting the session.
      *
      * @return the configured RouterBot instance
-     * @throws IllegalArgumentException if token or botName is missing
+     * @throws IllegalArgumentException if token or botName is missing, or polling settings are out of range
      */
     public RouterBot build() {
         validate();
-        return new RouterBot(token, botName, logics, defaultLogic);
+        return createBot();
     }
 
     /**
      * Validates the configuration and starts the Telegram bot session.
      *
      * @throws TelegramApiException     if the bot registration fails
-     * @throws IllegalArgumentException if token or botName is missing
+     * @throws IllegalArgumentException if token or botName is missing, or polling settings are out of range
      */
     public void start() throws TelegramApiException {
+        startWithHandle();
+    }
+
+    /**
+     * Validates the configuration and starts the Telegram bot session, like start(),
+     * and returns a handle for stopping it gracefully.
+     *
+     * @return the handle for stopping the bot gracefully
+     * @throws TelegramApiException     if the bot registration fails
+     * @throws IllegalArgumentException if token or botName is missing, or polling settings are out of range
+     */
+    public BotHandle startWithHandle() throws TelegramApiException {
         validate();
-        final RouterBot bot = new RouterBot(token, botName, logics, defaultLogic);
-        final TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-        botsApi.registerBot(bot);
+        final RouterBot bot = createBot();
+        final TelegramBotsApi botsApi = new TelegramBotsApi(RouterBotSession.class);
+        return new BotHandle(bot, (RouterBotSession) botsApi.registerBot(bot));
+    }
+
+    private RouterBot createBot() {
+        final RouterBotOptions options = new RouterBotOptions();
+        options.setLazyUpdateParsing(lazyUpdateParsing);
+        if (updatesLimit != null) {
+            options.setGetUpdatesLimit(updatesLimit);
+        }
+        if (updatesTimeout != null) {
+            options.setGetUpdatesTimeout(updatesTimeout);
+        }
+        if (allowedUpdates != null) {
+            options.setAllowedUpdates(allowedUpdates);
+        }
+        if (parserThreads != null) {
+            options.setPipelinedPolling(true);
+            options.setParserThreads(parserThreads);
+            options.setPrefetchBatches(prefetchBatches);
+        }
+        if (baseUrl != null) {
+            options.setBaseUrl(baseUrl);
+        }
+        final RouterBot bot = new RouterBot(options, token, botName, logics, defaultLogic);
+        if (interceptors != null) {
+            interceptors.forEach(bot::addInterceptor);
+        }
+        bot.setUpdateRecorder(updateRecorder);
+        bot.setTransport(transport);
+        bot.setChatInfoCache(chatInfoCache);
+        if (chatPriorities != null) {
+            chatPriorities.forEach(bot::setChatPriority);
+        }
+        if (normalPerLow > 0) {
+            if (laneCapacity != null) {
+                bot.enablePriorityLanes(normalPerLow, laneCapacity);
+            } else {
+                bot.enablePriorityLanes(normalPerLow);
+            }
+        }
+        if (outbox != null) {
+            bot.setOutbox(outbox);
+        }
+        return bot;
     }
 
     private void validate() {
@@ -109,5 +354,20 @@ public class TgBotBuilder {
         if (botName == null || botName.isBlank()) {
             throw new IllegalArgumentException("Bot name must not be empty");
         }
+        if (updatesLimit != null && (updatesLimit < 1 || updatesLimit > 100)) {
+            throw new IllegalArgumentException("Updates limit must be between 1 and 100");
+        }
+        if (updatesTimeout != null && updatesTimeout < 0) {
+            throw new IllegalArgumentException("Updates timeout must not be negative");
+        }
+        if (laneCapacity != null && laneCapacity < 1) {
+            throw new IllegalArgumentException("Lane capacity must be positive");
+        }
+        if (parserThreads != null && parserThreads < 1) {
+            throw new IllegalArgumentException("Parser threads must be positive");
+        }
+        if (prefetchBatches != null && prefetchBatches < 1) {
+            throw new IllegalArgumentException("Prefetch batches must be positive");
+        }
     }
 }
@@ -1,9 +1,20 @@
 package ru.castroy10.bot;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.telegram.telegrambots.meta.api.methods.ActionType;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChat;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatAdministrators;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
 import org.telegram.telegrambots.meta.api.methods.polls.SendPoll;
 import org.telegram.telegrambots.meta.api.methods.send.SendAnimation;
 import org.telegram.telegrambots.meta.api.methods.send.SendAudio;
@@ -19,11 +30,17 @@ import org.telegram.telegrambots.meta.api.methods.send.SendVoice;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageCaption;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Chat;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiValidationException;
+import ru.castroy10.bot.outbox.Outbox;
 
 /**
  * Base abstract class for implementing bot logic.
@@ -50,11 +67,25 @@ public abstract class AbstractBotLogic {
 
     /**
      * Get the Chat ID associated with this logic.
+     * RouterBot reads the chat ID of a single-chat logic handler once, when the bot is constructed, and routes by it:
+     * changing the value later does not reroute updates, and a handler returning null is skipped with a warning.
+     * Extend MultiChatBotLogic to change the served chats at runtime.
      *
      * @return the chat ID
      */
     public abstract Long getChatId();
 
+    /**
+     * Get the priority of this logic.
+     * Used for dispatch and outbound calls when priority lanes are enabled in RouterBot.
+     * Override to give a logic handler (e.g. an admin chat) a different priority.
+     *
+     * @return the priority, NORMAL by default
+     */
+    public Priority getPriority() {
+        return Priority.NORMAL;
+    }
+
     /**
      * Send a simple text message.
      *
@@ -80,11 +111,7 @@ public abstract class AbstractBotLogic {
             message.setReplyMarkup(keyboard);
         }
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send message to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send message to chat {}: {}", getChatId());
     }
 
     /**
@@ -110,11 +137,7 @@ public abstract class AbstractBotLogic {
         message.setPhoto(photo);
         message.setCaption(caption);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send photo to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send photo to chat {}: {}", getChatId());
     }
 
     /**
@@ -140,11 +163,7 @@ public abstract class AbstractBotLogic {
         message.setVideo(video);
         message.setCaption(caption);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send video to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send video to chat {}: {}", getChatId());
     }
 
     /**
@@ -170,11 +189,7 @@ public abstract class AbstractBotLogic {
         message.setAudio(audio);
         message.setCaption(caption);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send audio to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send audio to chat {}: {}", getChatId());
     }
 
     /**
@@ -200,11 +215,7 @@ public abstract class AbstractBotLogic {
         message.setVoice(voice);
         message.setCaption(caption);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send voice to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send voice to chat {}: {}", getChatId());
     }
 
     /**
@@ -230,11 +241,7 @@ public abstract class AbstractBotLogic {
         message.setAnimation(animation);
         message.setCaption(caption);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send animation to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send animation to chat {}: {}", getChatId());
     }
 
     /**
@@ -260,11 +267,7 @@ public abstract class AbstractBotLogic {
         message.setDocument(document);
         message.setCaption(caption);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send document to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send document to chat {}: {}", getChatId());
     }
 
     /**
@@ -279,11 +282,7 @@ public abstract class AbstractBotLogic {
         message.setChatId(getChatId().toString());
         message.setSticker(sticker);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send sticker to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send sticker to chat {}: {}", getChatId());
     }
 
     /**
@@ -300,11 +299,7 @@ public abstract class AbstractBotLogic {
         message.setLatitude(latitude);
         message.setLongitude(longitude);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send location to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send location to chat {}: {}", getChatId());
     }
 
     /**
@@ -323,11 +318,7 @@ public abstract class AbstractBotLogic {
         message.setFirstName(firstName);
         message.setLastName(lastName);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send contact to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send contact to chat {}: {}", getChatId());
     }
 
     /**
@@ -344,11 +335,7 @@ public abstract class AbstractBotLogic {
         message.setQuestion(question);
         message.setOptions(options);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send poll to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send poll to chat {}: {}", getChatId());
     }
 
     /**
@@ -363,11 +350,7 @@ public abstract class AbstractBotLogic {
         message.setChatId(getChatId().toString());
         message.setAction(action);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to send chat action to chat {}: {}", getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to send chat action to chat {}: {}", getChatId());
     }
 
     /**
@@ -382,11 +365,7 @@ public abstract class AbstractBotLogic {
         message.setChatId(getChatId().toString());
         message.setMessageId(messageId);
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to delete message {} in chat {}: {}", messageId, getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to delete message {} in chat {}: {}", messageId, getChatId());
     }
 
     /**
@@ -407,11 +386,7 @@ public abstract class AbstractBotLogic {
             message.setReplyMarkup((InlineKeyboardMarkup) keyboard);
         }
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to edit message text {} in chat {}: {}", messageId, getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to edit message text {} in chat {}: {}", messageId, getChatId());
     }
 
     /**
@@ -432,11 +407,120 @@ public abstract class AbstractBotLogic {
             message.setReplyMarkup((InlineKeyboardMarkup) keyboard);
         }
 
-        try {
-            bot.execute(message);
-        } catch (final TelegramApiException e) {
-            log.error("Failed to edit message caption {} in chat {}: {}", messageId, getChatId(), e.getMessage());
-        }
+        execute(message, () -> bot.execute(message), "Failed to edit message caption {} in chat {}: {}", messageId, getChatId());
+    }
+
+    /**
+     * Answer an inline query with the given results.
+     *
+     * @param inlineQueryId the ID of the inline query to answer
+     * @param results       the results to show
+     */
+    public void answerInlineQuery(final String inlineQueryId, final List<InlineQueryResult> results) {
+        if (checkBotInit()) return;
+
+        final AnswerInlineQuery message = new AnswerInlineQuery();
+        message.setInlineQueryId(inlineQueryId);
+        message.setResults(results);
+
+        execute(message, () -> bot.execute(message), "Failed to answer inline query {}: {}", inlineQueryId);
+    }
+
+    /**
+     * Answer an inline query with a page of results.
+     *
+     * @param inlineQueryId the ID of the inline query to answer
+     * @param page          the results and the offset of the next page
+     * @param cacheTime     the time in seconds Telegram may cache the answer (optional)
+     * @param isPersonal    whether Telegram may only reuse the answer for the same user (optional)
+     */
+    public void answerInlineQuery(final String inlineQueryId, final InlineQueryPage page, final Integer cacheTime, final Boolean isPersonal) {
+        if (checkBotInit()) return;
+
+        final AnswerInlineQuery message = new AnswerInlineQuery();
+        message.setInlineQueryId(inlineQueryId);
+        message.setResults(page.results());
+        message.setNextOffset(page.nextOffset());
+        message.setCacheTime(cacheTime);
+        message.setIsPersonal(isPersonal);
+
+        execute(message, () -> bot.execute(message), "Failed to answer inline query {}: {}", inlineQueryId);
+    }
+
+    /**
+     * Answer an inline query using a page from the cache.
+     * The loader is called only when no fresh page is cached for the query text and offset.
+     * The answer carries the page's next offset and is marked as not personal, with the cache TTL as cache time.
+     *
+     * @param inlineQuery the inline query to answer
+     * @param cache       the cache of inline query results
+     * @param loader      the function computing the page on a cache miss
+     */
+    public void answerInlineQuery(final InlineQuery inlineQuery, final InlineQueryCache cache,
+                                  final Function<InlineQuery, InlineQueryPage> loader) {
+        final InlineQueryPage page = cache.get(inlineQuery.getQuery(), inlineQuery.getOffset(), () -> loader.apply(inlineQuery));
+        answerInlineQuery(inlineQuery.getId(), page, cache.getCacheTime(), false);
+    }
+
+    /**
+     * Get the current chat.
+     * The result is cached if a ChatInfoCache is set on the bot.
+     *
+     * @return the chat, or null if the request failed
+     */
+    public Chat getChat() {
+        if (checkBotInit()) return null;
+
+        final Long chatId = getChatId();
+        final GetChat method = GetChat.builder().chatId(chatId.toString()).build();
+        final Supplier<Chat> loader = () -> query(method, chatId, "Failed to get chat {}: {}", chatId);
+        final ChatInfoCache cache = bot.getChatInfoCache();
+        return cache != null ? cache.getChat(chatId, loader) : loader.get();
+    }
+
+    /**
+     * Get a member of the current chat.
+     * The result is cached if a ChatInfoCache is set on the bot.
+     *
+     * @param userId the user ID
+     * @return the chat member, or null if the request failed
+     */
+    public ChatMember getChatMember(final Long userId) {
+        if (checkBotInit()) return null;
+
+        final Long chatId = getChatId();
+        final GetChatMember method = GetChatMember.builder().chatId(chatId.toString()).userId(userId).build();
+        final Supplier<ChatMember> loader = () -> query(method, chatId, "Failed to get member {} of chat {}: {}", userId, chatId);
+        final ChatInfoCache cache = bot.getChatInfoCache();
+        return cache != null ? cache.getChatMember(chatId, userId, loader) : loader.get();
+    }
+
+    /**
+     * Get the administrators of the current chat.
+     * The result is cached if a ChatInfoCache is set on the bot.
+     *
+     * @return the administrators, or an empty list if the request failed
+     */
+    public List<ChatMember> getChatAdministrators() {
+        if (checkBotInit()) return List.of();
+
+        final Long chatId = getChatId();
+        final GetChatAdministrators method = GetChatAdministrators.builder().chatId(chatId.toString()).build();
+        final Supplier<List<ChatMember>> loader = () -> query(method, chatId, "Failed to get administrators of chat {}: {}", chatId);
+        final ChatInfoCache cache = bot.getChatInfoCache();
+        final List<ChatMember> administrators = cache != null ? cache.getChatAdministrators(chatId, loader) : loader.get();
+        return administrators != null ? administrators : List.of();
+    }
+
+    /**
+     * Check whether the user is an administrator or the creator of the current chat.
+     * Uses the administrator list, so one cached lookup serves every user of the chat.
+     *
+     * @param userId the user ID
+     * @return true if the user is an administrator; false if not or if the request failed
+     */
+    public boolean isChatAdministrator(final Long userId) {
+        return getChatAdministrators().stream().anyMatch(member -> member.getUser().getId().equals(userId));
     }
 
     /**
@@ -457,4 +541,75 @@ public abstract class AbstractBotLogic {
         return false;
     }
 
+    private void execute(final PartialBotApiMethod<?> method, final ApiCall<?> call, final String error, final Object... args) {
+        final Long chatId = getChatId();
+        final Outbox outbox = bot.getOutbox();
+        final LaneExecutor sender = bot.getSendExecutor();
+        if (outbox == null && sender == null) {
+            call(method, chatId, call, error, args);
+            return;
+        }
+        final Priority priority = bot.getPriority(chatId, this);
+        if (priority == Priority.HIGH) {
+            call(method, chatId, call, error, args);
+            return;
+        }
+        if (outbox != null && method instanceof final BotApiMethod<?> apiMethod) {
+            try {
+                outbox.enqueue(apiMethod, priority);
+                return;
+            } catch (final TelegramApiValidationException e) {
+                logFailure(error, args, e);
+                return;
+            } catch (final IOException e) {
+                log.error("Failed to write {} to outbox, sending directly: {}", method.getMethod(), e.getMessage());
+            }
+        }
+        if (sender == null || !sender.submit(priority, () -> call(method, chatId, call, error, args))) {
+            call(method, chatId, call, error, args);
+        }
+    }
+
+    private <T extends Serializable> T query(final BotApiMethod<T> method, final Long chatId, final String error, final Object... args) {
+        return call(method, chatId, () -> bot.execute(method), error, args);
+    }
+
+    private <T> T call(final PartialBotApiMethod<?> method, final Long chatId, final ApiCall<T> call, final String error, final Object... args) {
+        final ApiCallEvent event = new ApiCallEvent();
+        event.begin();
+        try {
+            final T result = call.execute();
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = method.getMethod();
+                event.chatId = chatId != null ? chatId : 0L;
+                event.outcome = ApiCallEvent.OK;
+                event.commit();
+            }
+            return result;
+        } catch (final TelegramApiException e) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = method.getMethod();
+                event.chatId = chatId != null ? chatId : 0L;
+                event.outcome = ApiCallEvent.ERROR;
+                event.error = e.getMessage();
+                event.commit();
+            }
+            logFailure(error, args, e);
+            return null;
+        }
+    }
+
+    private static void logFailure(final String error, final Object[] args, final TelegramApiException e) {
+        final Object[] logArgs = Arrays.copyOf(args, args.length + 1);
+        logArgs[args.length] = e.getMessage();
+        log.error(error, logArgs);
+    }
+
+    @FunctionalInterface
+    private interface ApiCall<T> {
+        T execute() throws TelegramApiException;
+    }
+
 }
@@ -0,0 +1,55 @@
+package ru.castroy10.bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering one Bot API call made by an AbstractBotLogic helper,
+ * either directly or by an Outbox sender thread.
+ */
+@Name("ru.castroy10.ApiCall")
+@Label("Bot API Call")
+@Category({"Telegram Bot", "Outbound"})
+@Description("Bot API call made by a logic handler helper")
+@StackTrace(false)
+public final class ApiCallEvent extends Event {
+
+    /**
+     * Outcome of a call confirmed by Telegram.
+     */
+    public static final String OK = "ok";
+
+    /**
+     * Outcome of a call that failed.
+     */
+    public static final String ERROR = "error";
+
+    /**
+     * The Bot API method name.
+     */
+    @Label("Method")
+    public String method;
+
+    /**
+     * The target chat ID, or 0 if the call has no numeric chat.
+     */
+    @Label("Chat ID")
+    public long chatId;
+
+    /**
+     * OK or ERROR.
+     */
+    @Label("Outcome")
+    public String outcome;
+
+    /**
+     * The error message of a failed call.
+     */
+    @Label("Error")
+    public String error;
+
+}
@@ -0,0 +1,55 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+
+/**
+ * Handle of a started bot, returned by TgBotBuilder.startWithHandle().
+ * Use stop(Duration) to shut the bot down gracefully, e.g. from a shutdown hook during a rolling deploy.
+ */
+public final class BotHandle {
+
+    private final RouterBot bot;
+    private final RouterBotSession session;
+
+    /**
+     * Constructs a new BotHandle instance.
+     *
+     * @param bot     the running bot
+     * @param session the session polling updates for the bot
+     */
+    public BotHandle(final RouterBot bot, final RouterBotSession session) {
+        this.bot = bot;
+        this.session = session;
+    }
+
+    /**
+     * Returns the running bot, e.g. to read its polling metrics.
+     *
+     * @return the RouterBot instance
+     */
+    public RouterBot getBot() {
+        return bot;
+    }
+
+    /**
+     * Returns whether the bot is still polling or draining.
+     *
+     * @return true if the session is running
+     */
+    public boolean isRunning() {
+        return session.isRunning();
+    }
+
+    /**
+     * Stops polling at once, lets received updates and queued calls finish until the deadline,
+     * confirms the offset to Telegram and closes the bot.
+     *
+     * @param timeout the maximum time to wait for received updates and queued calls
+     * @return the report of drained and abandoned work
+     * @throws IllegalStateException if the bot is already stopped
+     */
+    public StopReport stop(final Duration timeout) {
+        return session.stop(timeout);
+    }
+
+}
@@ -0,0 +1,156 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.ChatMemberUpdated;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+
+/**
+ * Cache of getChat, getChatMember and getChatAdministrators results.
+ * Entries expire after a fixed TTL, the least recently used entries are evicted first,
+ * and concurrent lookups of the same missing entry share one API call.
+ * RouterBot passes every update to the cache before routing: a my_chat_member update drops everything cached
+ * for the chat, and a chat_member update or a service message about joining or leaving members drops
+ * the affected members and the administrator list of the chat.
+ */
+public final class ChatInfoCache {
+
+    private final TtlCache<Long, Chat> chats;
+    private final TtlCache<MemberKey, ChatMember> members;
+    private final TtlCache<Long, List<ChatMember>> administrators;
+
+    private record MemberKey(long chatId, long userId) {
+    }
+
+    /**
+     * Constructs a new ChatInfoCache instance.
+     *
+     * @param maxEntries the maximum number of entries of each kind (chats, members, administrator lists)
+     * @param ttl        the time after which cached results expire
+     */
+    public ChatInfoCache(final int maxEntries, final Duration ttl) {
+        this.chats = new TtlCache<>(maxEntries, ttl);
+        this.members = new TtlCache<>(maxEntries, ttl);
+        this.administrators = new TtlCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Returns the cached chat, loading it on a miss.
+     *
+     * @param chatId the chat ID
+     * @param loader the function calling getChat when the chat is not cached
+     * @return the chat, or null if the loader returned null
+     */
+    public Chat getChat(final Long chatId, final Supplier<Chat> loader) {
+        return chats.get(chatId, loader);
+    }
+
+    /**
+     * Returns the cached chat member, loading it on a miss.
+     *
+     * @param chatId the chat ID
+     * @param userId the user ID
+     * @param loader the function calling getChatMember when the member is not cached
+     * @return the chat member, or null if the loader returned null
+     */
+    public ChatMember getChatMember(final Long chatId, final Long userId, final Supplier<ChatMember> loader) {
+        return members.get(new MemberKey(chatId, userId), loader);
+    }
+
+    /**
+     * Returns the cached administrator list, loading it on a miss.
+     *
+     * @param chatId the chat ID
+     * @param loader the function calling getChatAdministrators when the list is not cached
+     * @return the administrators, or null if the loader returned null
+     */
+    public List<ChatMember> getChatAdministrators(final Long chatId, final Supplier<List<ChatMember>> loader) {
+        return administrators.get(chatId, loader);
+    }
+
+    /**
+     * Invalidates entries affected by the update.
+     *
+     * @param update the update received from Telegram
+     * @param chatId the chat ID of the update
+     */
+    public void onUpdate(final Update update, final Long chatId) {
+        if (update.hasMyChatMember()) {
+            invalidateChat(chatId);
+        } else if (update.hasChatMember()) {
+            final ChatMemberUpdated chatMember = update.getChatMember();
+            invalidateMember(chatId, chatMember.getNewChatMember().getUser().getId());
+        } else if (update.hasMessage()) {
+            if (update.getMessage().getLeftChatMember() != null) {
+                invalidateMember(chatId, update.getMessage().getLeftChatMember().getId());
+            }
+            if (update.getMessage().getNewChatMembers() != null) {
+                update.getMessage().getNewChatMembers().forEach(user -> invalidateMember(chatId, user.getId()));
+            }
+        }
+    }
+
+    /**
+     * Removes the chat, its members and its administrator list.
+     *
+     * @param chatId the chat ID
+     */
+    public void invalidateChat(final Long chatId) {
+        chats.invalidate(chatId);
+        members.invalidateIf(key -> key.chatId() == chatId);
+        administrators.invalidate(chatId);
+    }
+
+    /**
+     * Removes the chat member and the administrator list of the chat.
+     *
+     * @param chatId the chat ID
+     * @param userId the user ID
+     */
+    public void invalidateMember(final Long chatId, final Long userId) {
+        members.invalidate(new MemberKey(chatId, userId));
+        administrators.invalidate(chatId);
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public void clear() {
+        chats.clear();
+        members.clear();
+        administrators.clear();
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return chats.hitCount() + members.hitCount() + administrators.hitCount();
+    }
+
+    /**
+     * Returns the number of lookups that called the Bot API.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return chats.missCount() + members.missCount() + administrators.missCount();
+    }
+
+    /**
+     * Returns the share of lookups served from the cache.
+     *
+     * @return the hit ratio between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRatio() {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+}
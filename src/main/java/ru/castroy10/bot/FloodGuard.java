@@ -0,0 +1,210 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+/**
+ * Interceptor that drops updates from users exceeding a rate limit.
+ * Uses a sliding window counter per user ID, weighting the previous window by its overlap with the current one.
+ * Messages sent on behalf of a chat (anonymous admins, channel posts, automatic forwards) are counted per sender chat,
+ * because their sender user is a service account shared by all chats.
+ * Users idle for two windows are evicted once per window. When the tracking limit is reached,
+ * the least recently seen user is evicted to make room, so memory stays bounded and every user is still checked.
+ */
+public class FloodGuard implements UpdateInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(FloodGuard.class);
+    private static final int DEFAULT_MAX_TRACKED_USERS = 100_000;
+
+    private final int maxUpdates;
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final Map<Long, Counter> counters;
+    private final AtomicLong lastSweep;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * Constructs a new FloodGuard instance.
+     *
+     * @param maxUpdates the maximum number of updates accepted from one user per window
+     * @param window     the length of the sliding window
+     */
+    public FloodGuard(final int maxUpdates, final Duration window) {
+        this(maxUpdates, window, DEFAULT_MAX_TRACKED_USERS);
+    }
+
+    /**
+     * Constructs a new FloodGuard instance.
+     *
+     * @param maxUpdates      the maximum number of updates accepted from one user per window
+     * @param window          the length of the sliding window
+     * @param maxTrackedUsers the number of tracked users after which the least recently seen user is evicted
+     */
+    public FloodGuard(final int maxUpdates, final Duration window, final int maxTrackedUsers) {
+        this(maxUpdates, window, maxTrackedUsers, System::nanoTime);
+    }
+
+    FloodGuard(final int maxUpdates, final Duration window, final int maxTrackedUsers, final LongSupplier clock) {
+        if (maxUpdates <= 0) {
+            throw new IllegalArgumentException("Max updates must be positive");
+        }
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (maxTrackedUsers <= 0) {
+            throw new IllegalArgumentException("Max tracked users must be positive");
+        }
+        this.maxUpdates = maxUpdates;
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+        this.counters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Counter> eldest) {
+                if (size() <= maxTrackedUsers) {
+                    return false;
+                }
+                evicted.increment();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public boolean intercept(final Update update, final Long chatId) {
+        final Long userId = getSenderId(update, chatId);
+        if (userId == null) {
+            return true;
+        }
+        final long now = clock.getAsLong();
+        final Counter counter;
+        synchronized (counters) {
+            sweepIfNeeded(now);
+            counter = counters.computeIfAbsent(userId, id -> new Counter(now));
+        }
+        if (counter.tryAcquire(now, maxUpdates, windowNanos)) {
+            return true;
+        }
+        dropped.increment();
+        log.debug("Flood guard dropped update from user {}", userId);
+        return false;
+    }
+
+    /**
+     * Returns the number of updates dropped so far.
+     *
+     * @return the dropped update count
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of users currently tracked.
+     *
+     * @return the tracked user count
+     */
+    public int getTrackedUsers() {
+        synchronized (counters) {
+            return counters.size();
+        }
+    }
+
+    /**
+     * Returns the number of users evicted because the tracking limit was reached.
+     * A steadily growing count means maxTrackedUsers is too small for the active user base.
+     *
+     * @return the evicted user count
+     */
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    private void sweepIfNeeded(final long now) {
+        final long last = lastSweep.get();
+        if (now - last < windowNanos || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        // Counters are kept in access order, so idle users are at the head.
+        final Iterator<Counter> iterator = counters.values().iterator();
+        while (iterator.hasNext() && iterator.next().isIdle(now, windowNanos)) {
+            iterator.remove();
+        }
+    }
+
+    private static Long getSenderId(final Update update, final Long chatId) {
+        final Chat senderChat = switch (update) {
+            case final Update u when u.hasMessage() -> u.getMessage().getSenderChat();
+            case final Update u when u.hasEditedMessage() -> u.getEditedMessage().getSenderChat();
+            default -> null;
+        };
+        if (senderChat != null) {
+            return senderChat.getId();
+        }
+        final User user = switch (update) {
+            case final Update u when u.hasMessage() -> u.getMessage().getFrom();
+            case final Update u when u.hasEditedMessage() -> u.getEditedMessage().getFrom();
+            case final Update u when u.hasCallbackQuery() -> u.getCallbackQuery().getFrom();
+            case final Update u when u.hasInlineQuery() -> u.getInlineQuery().getFrom();
+            case final Update u when u.getChosenInlineQuery() != null -> u.getChosenInlineQuery().getFrom();
+            case final Update u when u.hasMyChatMember() -> u.getMyChatMember().getFrom();
+            case final Update u when u.hasChatMember() -> u.getChatMember().getFrom();
+            case final Update u when u.hasChatJoinRequest() -> u.getChatJoinRequest().getUser();
+            case final Update u when u.getMessageReaction() != null -> u.getMessageReaction().getUser();
+            case final Update u when u.hasShippingQuery() -> u.getShippingQuery().getFrom();
+            case final Update u when u.hasPreCheckoutQuery() -> u.getPreCheckoutQuery().getFrom();
+            case final Update u when u.hasPollAnswer() -> u.getPollAnswer().getUser();
+            default -> null;
+        };
+        return user != null ? user.getId() : chatId;
+    }
+
+    private static final class Counter {
+
+        private long windowStart;
+        private int previous;
+        private int current;
+        private volatile long lastSeen;
+
+        private Counter(final long now) {
+            this.windowStart = now;
+            this.lastSeen = now;
+        }
+
+        private synchronized boolean tryAcquire(final long now, final int max, final long window) {
+            lastSeen = now;
+            final long elapsed = now - windowStart;
+            if (elapsed >= 2 * window) {
+                previous = 0;
+                current = 0;
+                windowStart = now;
+            } else if (elapsed >= window) {
+                previous = current;
+                current = 0;
+                windowStart += window;
+            }
+            final double overlap = 1.0 - (double) (now - windowStart) / window;
+            if (previous * overlap + current >= max) {
+                return false;
+            }
+            current++;
+            return true;
+        }
+
+        private boolean isIdle(final long now, final long window) {
+            return now - lastSeen >= 2 * window;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package ru.castroy10.bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the execution of a logic handler for one update.
+ */
+@Name("ru.castroy10.Handler")
+@Label("Update Handler")
+@Category({"Telegram Bot", "Inbound"})
+@Description("Execution of AbstractBotLogic.processUpdate")
+@StackTrace(false)
+final class HandlerEvent extends Event {
+
+    @Label("Update ID")
+    int updateId;
+
+    @Label("Update Type")
+    String updateType;
+
+    @Label("Chat ID")
+    long chatId;
+
+    @Label("Handler")
+    Class<?> handler;
+
+}
@@ -0,0 +1,100 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of inline query result pages keyed by normalized query text and offset.
+ * Entries expire after a fixed TTL, the least recently used entries are evicted first,
+ * and concurrent identical queries are computed only once.
+ * Results must not depend on the user who sent the query, so answers built from this cache are sent as not personal,
+ * with a Telegram-side cache time equal to the TTL.
+ */
+public final class InlineQueryCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final TtlCache<Key, InlineQueryPage> cache;
+    private final Duration ttl;
+
+    /**
+     * Constructs a new InlineQueryCache instance.
+     *
+     * @param maxEntries the maximum number of cached result pages
+     * @param ttl        the time after which cached results expire
+     */
+    public InlineQueryCache(final int maxEntries, final Duration ttl) {
+        this.cache = new TtlCache<>(maxEntries, ttl);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the cached page for the query and offset, computing it on a miss.
+     *
+     * @param query  the inline query text
+     * @param offset the offset of the requested page
+     * @param loader the function computing the page when it is not cached
+     * @return the page of inline query results
+     */
+    public InlineQueryPage get(final String query, final String offset, final Supplier<InlineQueryPage> loader) {
+        final InlineQueryPage page = cache.get(new Key(normalize(query), offset == null ? "" : offset), loader);
+        return page != null ? page : InlineQueryPage.last(List.of());
+    }
+
+    /**
+     * Returns the time for which Telegram may cache answers built from this cache.
+     *
+     * @return the cache time in seconds, equal to the TTL
+     */
+    public int getCacheTime() {
+        return (int) Math.min(ttl.toSeconds(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return cache.hitCount();
+    }
+
+    /**
+     * Returns the number of lookups that computed results.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return cache.missCount();
+    }
+
+    /**
+     * Returns the share of lookups served from the cache.
+     *
+     * @return the hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        return cache.hitRatio();
+    }
+
+    static String normalize(final String query) {
+        if (query == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(query.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private record Key(String query, String offset) {
+    }
+
+}
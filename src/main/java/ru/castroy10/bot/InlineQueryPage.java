@@ -0,0 +1,37 @@
+package ru.castroy10.bot;
+
+import java.util.List;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+
+/**
+ * Page of inline query results together with the offset of the next page.
+ * Telegram sends the next offset back with the query when the user scrolls, so paging only works
+ * if the answer sets it.
+ *
+ * @param results    the results to show
+ * @param nextOffset the offset of the next page, or an empty string if this is the last page
+ */
+public record InlineQueryPage(List<InlineQueryResult> results, String nextOffset) {
+
+    /**
+     * Constructs a new InlineQueryPage instance, replacing null values with an empty list and an empty offset.
+     *
+     * @param results    the results to show
+     * @param nextOffset the offset of the next page, or an empty string if this is the last page
+     */
+    public InlineQueryPage {
+        results = results != null ? List.copyOf(results) : List.of();
+        nextOffset = nextOffset != null ? nextOffset : "";
+    }
+
+    /**
+     * Creates the last page of results.
+     *
+     * @param results the results to show
+     * @return the page without a next offset
+     */
+    public static InlineQueryPage last(final List<InlineQueryResult> results) {
+        return new InlineQueryPage(results, "");
+    }
+
+}
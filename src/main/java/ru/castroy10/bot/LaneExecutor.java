@@ -0,0 +1,225 @@
+package ru.castroy10.bot;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single-threaded executor with one queue per priority.
+ * HIGH tasks always run first. When both NORMAL and LOW tasks are waiting, one LOW task runs
+ * after every {@code normalPerLow} NORMAL tasks. Tasks of the same priority run in submission order.
+ * When the queued tasks reach the capacity, submit blocks until the worker takes one, so producers slow down
+ * instead of growing the queues without bound.
+ */
+final class LaneExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(LaneExecutor.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Runnable> high = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> normal = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> low = new ArrayDeque<>();
+    private final int normalPerLow;
+    private final int capacity;
+    private final Thread worker;
+    private int normalServed;
+    private boolean running;
+    private boolean shutdown;
+
+    /**
+     * Constructs and starts a new LaneExecutor instance with unbounded queues.
+     *
+     * @param name         the name of the worker thread
+     * @param normalPerLow the number of NORMAL tasks run for each LOW task when both are waiting
+     */
+    LaneExecutor(final String name, final int normalPerLow) {
+        this(name, normalPerLow, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs and starts a new LaneExecutor instance.
+     *
+     * @param name         the name of the worker thread
+     * @param normalPerLow the number of NORMAL tasks run for each LOW task when both are waiting
+     * @param capacity     the number of queued tasks, across all lanes, after which submit blocks
+     */
+    LaneExecutor(final String name, final int normalPerLow, final int capacity) {
+        if (normalPerLow <= 0) {
+            throw new IllegalArgumentException("Normal per low ratio must be positive");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Lane capacity must be positive");
+        }
+        this.normalPerLow = normalPerLow;
+        this.capacity = capacity;
+        this.worker = new Thread(this::work, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues the task in the lane of the given priority, waiting while the queues are at capacity.
+     *
+     * @param priority the lane
+     * @param task     the task to run
+     * @return false if the executor is shut down or the caller was interrupted while waiting, and the task was rejected
+     */
+    boolean submit(final Priority priority, final Runnable task) {
+        lock.lock();
+        try {
+            while (!shutdown && high.size() + normal.size() + low.size() >= capacity) {
+                try {
+                    changed.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (shutdown) {
+                return false;
+            }
+            lane(priority).add(task);
+            changed.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of queued tasks, not counting the one running.
+     *
+     * @return the queued task count
+     */
+    int queued() {
+        lock.lock();
+        try {
+            return high.size() + normal.size() + low.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all queued tasks have run.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the executor became idle, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (running || !high.isEmpty() || !normal.isEmpty() || !low.isEmpty()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = changed.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rejects new tasks and stops the worker once the queued tasks have run.
+     */
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rejects new tasks, discards queued ones and interrupts the worker.
+     *
+     * @return the number of discarded tasks
+     */
+    int shutdownNow() {
+        lock.lock();
+        try {
+            shutdown = true;
+            final int discarded = high.size() + normal.size() + low.size();
+            high.clear();
+            normal.clear();
+            low.clear();
+            changed.signalAll();
+            worker.interrupt();
+            return discarded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            final Runnable task;
+            try {
+                task = take();
+            } catch (final InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (final Throwable e) {
+                log.error("Task in {} failed: {}", worker.getName(), e.getMessage(), e);
+            } finally {
+                lock.lock();
+                try {
+                    running = false;
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (high.isEmpty() && normal.isEmpty() && low.isEmpty()) {
+                if (shutdown) {
+                    return null;
+                }
+                changed.await();
+            }
+            running = true;
+            changed.signalAll();
+            if (!high.isEmpty()) {
+                return high.poll();
+            }
+            if (low.isEmpty() || !normal.isEmpty() && normalServed < normalPerLow) {
+                normalServed++;
+                return normal.poll();
+            }
+            normalServed = 0;
+            return low.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ArrayDeque<Runnable> lane(final Priority priority) {
+        return switch (priority) {
+            case HIGH -> high;
+            case NORMAL -> normal;
+            case LOW -> low;
+        };
+    }
+
+}
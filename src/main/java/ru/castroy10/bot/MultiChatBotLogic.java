@@ -0,0 +1,94 @@
+package ru.castroy10.bot;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Logic handler bound to a set of chat IDs.
+ * One instance serves every chat in the set. The set is kept as a sorted array of primitive longs,
+ * so membership is checked by binary search, and it can be replaced atomically at runtime.
+ * Like DefaultBotLogic, getChatId() returns the chat of the update being processed.
+ */
+public abstract class MultiChatBotLogic extends AbstractBotLogic {
+
+    private volatile long[] chatIds = new long[0];
+    private Long currentChatId;
+
+    /**
+     * Constructs a new MultiChatBotLogic instance with an empty chat set.
+     */
+    protected MultiChatBotLogic() {
+        super();
+    }
+
+    /**
+     * Constructs a new MultiChatBotLogic instance.
+     *
+     * @param chatIds the chat IDs served by this logic
+     */
+    protected MultiChatBotLogic(final Collection<Long> chatIds) {
+        super();
+        setChatIds(chatIds);
+    }
+
+    /**
+     * Replaces the set of chat IDs served by this logic.
+     * Updates routed after this call see the new set; null IDs are ignored.
+     *
+     * @param chatIds the chat IDs served by this logic
+     */
+    public void setChatIds(final Collection<Long> chatIds) {
+        this.chatIds = chatIds.stream()
+                              .filter(Objects::nonNull)
+                              .mapToLong(Long::longValue)
+                              .sorted()
+                              .distinct()
+                              .toArray();
+    }
+
+    /**
+     * Replaces the set of chat IDs served by this logic.
+     * The array is copied; updates routed after this call see the new set.
+     *
+     * @param chatIds the chat IDs served by this logic
+     */
+    public void setChatIds(final long[] chatIds) {
+        this.chatIds = Arrays.stream(chatIds).sorted().distinct().toArray();
+    }
+
+    /**
+     * Checks whether the chat belongs to the set served by this logic.
+     *
+     * @param chatId the chat ID
+     * @return true if the chat is in the set
+     */
+    public boolean containsChat(final long chatId) {
+        return Arrays.binarySearch(chatIds, chatId) >= 0;
+    }
+
+    /**
+     * Returns the number of chats served by this logic.
+     *
+     * @return the chat count
+     */
+    public int getChatCount() {
+        return chatIds.length;
+    }
+
+    /**
+     * Sets the Chat ID for the current update.
+     * This is used by RouterBot to set the context before processing.
+     *
+     * @param chatId the chat ID to set
+     */
+    public void setChatId(final Long chatId) {
+        this.currentChatId = chatId;
+    }
+
+    @Override
+    public Long getChatId() {
+        return currentChatId;
+    }
+
+}
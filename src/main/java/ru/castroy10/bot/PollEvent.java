@@ -0,0 +1,26 @@
+package ru.castroy10.bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for each getUpdates request made by RouterBotSession.
+ */
+@Name("ru.castroy10.Poll")
+@Label("Poll")
+@Category({"Telegram Bot", "Inbound"})
+@Description("getUpdates request made by the polling session")
+@StackTrace(false)
+final class PollEvent extends Event {
+
+    @Label("Offset")
+    int offset;
+
+    @Label("Batch Size")
+    int batchSize;
+
+}
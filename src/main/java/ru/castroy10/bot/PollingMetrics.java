@@ -0,0 +1,112 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the long polling session: getUpdates requests, batch sizes and time spent waiting.
+ * Idle time is the duration of getUpdates requests that returned no updates. Stall time is the time
+ * the reader waited for room in the prefetch buffer in pipelined mode, i.e. the time polling was held
+ * back because handlers did not keep up.
+ */
+public final class PollingMetrics {
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder emptyPolls = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+    private final LongAdder idleNanos = new LongAdder();
+    private final LongAdder stallNanos = new LongAdder();
+
+    /**
+     * Records a completed getUpdates request.
+     *
+     * @param batchSize    the number of new updates received
+     * @param elapsedNanos the duration of the request
+     */
+    void recordPoll(final int batchSize, final long elapsedNanos) {
+        polls.increment();
+        if (batchSize == 0) {
+            emptyPolls.increment();
+            idleNanos.add(elapsedNanos);
+            return;
+        }
+        updates.add(batchSize);
+        maxBatchSize.accumulateAndGet(batchSize, Math::max);
+    }
+
+    /**
+     * Records time the reader waited for room in the prefetch buffer.
+     *
+     * @param elapsedNanos the waiting time
+     */
+    void recordStall(final long elapsedNanos) {
+        stallNanos.add(elapsedNanos);
+    }
+
+    /**
+     * Returns the number of completed getUpdates requests.
+     *
+     * @return the poll count
+     */
+    public long getPollCount() {
+        return polls.sum();
+    }
+
+    /**
+     * Returns the number of getUpdates requests that returned no new updates.
+     *
+     * @return the empty poll count
+     */
+    public long getEmptyPollCount() {
+        return emptyPolls.sum();
+    }
+
+    /**
+     * Returns the number of new updates received.
+     *
+     * @return the update count
+     */
+    public long getUpdateCount() {
+        return updates.sum();
+    }
+
+    /**
+     * Returns the average size of non-empty batches.
+     *
+     * @return the average batch size, or 0 if no updates were received
+     */
+    public double getAverageBatchSize() {
+        final long batches = polls.sum() - emptyPolls.sum();
+        return batches > 0 ? (double) updates.sum() / batches : 0;
+    }
+
+    /**
+     * Returns the largest batch received.
+     *
+     * @return the maximum batch size
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    /**
+     * Returns the total duration of getUpdates requests that returned no updates.
+     *
+     * @return the poll idle time
+     */
+    public Duration getIdleTime() {
+        return Duration.ofNanos(idleNanos.sum());
+    }
+
+    /**
+     * Returns the total time the reader waited for room in the prefetch buffer.
+     *
+     * @return the stall time, always zero unless pipelined polling is enabled
+     */
+    public Duration getStallTime() {
+        return Duration.ofNanos(stallNanos.sum());
+    }
+
+}
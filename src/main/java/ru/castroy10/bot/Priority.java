@@ -0,0 +1,24 @@
+package ru.castroy10.bot;
+
+/**
+ * Priority class of a logic handler or chat.
+ * Used by RouterBot when priority lanes are enabled.
+ */
+public enum Priority {
+
+    /**
+     * Dispatched before any other update; outbound calls skip the send queue.
+     */
+    HIGH,
+
+    /**
+     * Default priority.
+     */
+    NORMAL,
+
+    /**
+     * Bulk traffic; served in a fixed share with NORMAL so it is never starved.
+     */
+    LOW
+
+}
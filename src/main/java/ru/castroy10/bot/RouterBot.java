@@ -1,10 +1,30 @@
 package ru.castroy10.bot;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.objects.MaybeInaccessibleMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import ru.castroy10.bot.outbox.Outbox;
+import ru.castroy10.bot.record.UpdateRecorder;
+import ru.castroy10.bot.transport.BotTransport;
 
 /**
  * The main bot class that routes incoming updates to specific logic handlers based on chat ID.
@@ -12,9 +32,26 @@ import org.telegram.telegrambots.meta.api.objects.Update;
  */
 public class RouterBot extends TelegramLongPollingBot {
 
+    private static final Logger log = LoggerFactory.getLogger(RouterBot.class);
+    private static final int DEFAULT_LANE_CAPACITY = 10_000;
+    private static final int DEFAULT_NORMAL_PER_LOW = 4;
+
     private final String botName;
-    private final List<AbstractBotLogic> botLogics;
+    private final Map<Long, AbstractBotLogic> logicsByChat = new HashMap<>();
+    private final List<MultiChatBotLogic> multiChatLogics;
     private final DefaultBotLogic defaultBotLogic;
+    private final List<UpdateInterceptor> interceptors = new CopyOnWriteArrayList<>();
+    private final Map<Long, Priority> chatPriorities = new ConcurrentHashMap<>();
+    private volatile UpdateRecorder updateRecorder;
+    private volatile LaneExecutor dispatchExecutor;
+    private volatile LaneExecutor sendExecutor;
+    private volatile int normalPerLow = DEFAULT_NORMAL_PER_LOW;
+    private volatile Outbox outbox;
+    private volatile BotTransport transport;
+    private volatile ChatInfoCache chatInfoCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PollingMetrics pollingMetrics = new PollingMetrics();
+    private final NavigableSet<Integer> inFlightUpdates = new ConcurrentSkipListSet<>();
 
     /**
      * Constructs a new RouterBot instance.
@@ -36,11 +73,40 @@ public class RouterBot extends TelegramLongPollingBot {
      * @param defaultBotLogic the optional logic handler for unknown chats
      */
     public RouterBot(final String botToken, final String botName, final List<AbstractBotLogic> botLogics, final DefaultBotLogic defaultBotLogic) {
-        super(botToken);
+        this(new RouterBotOptions(), botToken, botName, botLogics, defaultBotLogic);
+    }
+
+    /**
+     * Constructs a new RouterBot instance with custom options.
+     *
+     * @param options         the bot options (e.g. RouterBotOptions)
+     * @param botToken        the bot token provided by BotFather
+     * @param botName         the bot username
+     * @param botLogics       the list of logic handlers to be registered
+     * @param defaultBotLogic the optional logic handler for unknown chats
+     */
+    public RouterBot(final DefaultBotOptions options, final String botToken, final String botName,
+                     final List<AbstractBotLogic> botLogics, final DefaultBotLogic defaultBotLogic) {
+        super(options, botToken);
         this.botName = botName;
-        this.botLogics = botLogics != null ? botLogics : List.of();
+        final List<AbstractBotLogic> logics = botLogics != null ? botLogics : List.of();
         this.defaultBotLogic = defaultBotLogic;
-        this.botLogics.forEach(logic -> logic.setBot(this));
+        logics.forEach(logic -> logic.setBot(this));
+        for (final AbstractBotLogic logic : logics) {
+            if (logic instanceof MultiChatBotLogic) {
+                continue;
+            }
+            final Long chatId = logic.getChatId();
+            if (chatId == null) {
+                log.warn("Logic handler {} has no chat ID and will not receive updates", logic.getClass().getName());
+            } else {
+                logicsByChat.putIfAbsent(chatId, logic);
+            }
+        }
+        this.multiChatLogics = logics.stream()
+                                     .filter(MultiChatBotLogic.class::isInstance)
+                                     .map(MultiChatBotLogic.class::cast)
+                                     .toList();
         if (this.defaultBotLogic != null) {
             this.defaultBotLogic.setBot(this);
         }
@@ -56,9 +122,194 @@ public class RouterBot extends TelegramLongPollingBot {
         return botName;
     }
 
+    /**
+     * Adds an interceptor to the end of the inbound chain.
+     * Interceptors run in the order they were added, before the update is routed.
+     *
+     * @param interceptor the interceptor to add
+     */
+    public void addInterceptor(final UpdateInterceptor interceptor) {
+        interceptors.add(interceptor);
+    }
+
+    /**
+     * Sets the recorder that receives every incoming update before any filtering.
+     * The recorder is closed when the bot session closes.
+     *
+     * @param updateRecorder the recorder, or null to disable recording
+     */
+    public void setUpdateRecorder(final UpdateRecorder updateRecorder) {
+        this.updateRecorder = updateRecorder;
+    }
+
+    /**
+     * Sets the cache used by the getChat, getChatMember and getChatAdministrators helpers of logic handlers.
+     * Every incoming update is passed to the cache for invalidation before interceptors run.
+     *
+     * @param chatInfoCache the cache, or null to call the Bot API on every lookup
+     */
+    public void setChatInfoCache(final ChatInfoCache chatInfoCache) {
+        this.chatInfoCache = chatInfoCache;
+    }
+
+    /**
+     * Returns the metrics of the polling session that delivers updates to this bot.
+     *
+     * @return the polling metrics
+     */
+    public PollingMetrics getPollingMetrics() {
+        return pollingMetrics;
+    }
+
+    /**
+     * Sets the transport for JSON API calls and for getUpdates in RouterBotSession.
+     * Media uploads keep using the telegrambots Apache HTTP client.
+     * The transport is closed when the bot session closes.
+     *
+     * @param transport the transport (e.g. JdkHttpBotTransport), or null for the default Apache HTTP client
+     */
+    public void setTransport(final BotTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Executes a JSON API method through the configured transport, or through the default
+     * Apache HTTP client if none is set.
+     *
+     * @param method the method to execute
+     * @param <T>    the result type
+     * @param <M>    the method type
+     * @return the result returned by Telegram
+     * @throws TelegramApiException if the method is invalid, the request fails or Telegram returns an error
+     */
+    @Override
+    public <T extends Serializable, M extends BotApiMethod<T>> T execute(final M method) throws TelegramApiException {
+        final BotTransport current = transport;
+        if (current == null) {
+            return super.execute(method);
+        }
+        method.validate();
+        try {
+            final String url = getOptions().getBaseUrl() + getBotToken() + "/" + method.getMethod();
+            final byte[] response = current.post(url, objectMapper.writeValueAsBytes(method), null);
+            return method.deserializeResponse(new String(response, StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new TelegramApiException("Unable to execute " + method.getMethod() + " method", e);
+        }
+    }
+
+    /**
+     * Sets the durable outbox for calls made by AbstractBotLogic helpers.
+     * Delivery through this bot starts when the bot is registered, so building a bot does not send anything.
+     * Calls of HIGH priority and media uploads are sent directly; other calls keep their priority in the outbox.
+     * The outbox is closed when the bot session closes.
+     *
+     * @param outbox the outbox
+     */
+    public void setOutbox(final Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Starts delivering the outbox, if set, with the same NORMAL to LOW ratio as the priority lanes.
+     * Called by TelegramBotsApi when the bot is registered.
+     */
+    @Override
+    public void onRegister() {
+        final Outbox currentOutbox = outbox;
+        if (currentOutbox != null) {
+            currentOutbox.start(this, normalPerLow);
+        }
+    }
+
+    /**
+     * Overrides the priority of a chat, taking precedence over the priority of its logic handler.
+     *
+     * @param chatId   the chat ID
+     * @param priority the priority, or null to remove the override
+     */
+    public void setChatPriority(final Long chatId, final Priority priority) {
+        if (priority == null) {
+            chatPriorities.remove(chatId);
+        } else {
+            chatPriorities.put(chatId, priority);
+        }
+    }
+
+    /**
+     * Enables priority lanes for update dispatch and outbound calls.
+     * Updates are handled on a dispatch thread in priority order: HIGH first, then NORMAL and LOW
+     * with one LOW update for every {@code normalPerLow} NORMAL updates.
+     * Outbound calls made by AbstractBotLogic helpers go through a send thread with the same lanes,
+     * except HIGH calls, which are executed immediately on the calling thread.
+     * Updates and calls of the same priority keep their order.
+     * Each thread queues up to 10,000 tasks; beyond that, the thread handing over updates or calls waits.
+     *
+     * @param normalPerLow the number of NORMAL tasks served for each LOW task when both are waiting
+     */
+    public void enablePriorityLanes(final int normalPerLow) {
+        enablePriorityLanes(normalPerLow, DEFAULT_LANE_CAPACITY);
+    }
+
+    /**
+     * Enables priority lanes for update dispatch and outbound calls with the given queue capacity.
+     * When the dispatch queues are full, onUpdatesReceived waits, which in turn pauses polling;
+     * when the send queues are full, the logic handler making the call waits.
+     *
+     * @param normalPerLow the number of NORMAL tasks served for each LOW task when both are waiting
+     * @param capacity     the maximum number of tasks queued on each of the dispatch and send threads
+     */
+    public synchronized void enablePriorityLanes(final int normalPerLow, final int capacity) {
+        if (dispatchExecutor != null) {
+            throw new IllegalStateException("Priority lanes already enabled");
+        }
+        sendExecutor = new LaneExecutor("RouterBot Send", normalPerLow, capacity);
+        dispatchExecutor = new LaneExecutor("RouterBot Dispatch", normalPerLow, capacity);
+        this.normalPerLow = normalPerLow;
+    }
+
+    /**
+     * Handles a batch of updates.
+     * With priority lanes enabled, queues each update in the lane of its chat, waiting while the lanes are full;
+     * otherwise handles the updates in order on the calling thread, stopping early if the thread is interrupted.
+     * Updates count as in flight until handled, so a graceful stop can report and redeliver the rest.
+     *
+     * @param updates the updates received from Telegram
+     */
+    @Override
+    public void onUpdatesReceived(final List<Update> updates) {
+        final LaneExecutor dispatcher = dispatchExecutor;
+        updates.stream().map(Update::getUpdateId).filter(Objects::nonNull).forEach(inFlightUpdates::add);
+        for (final Update update : updates) {
+            final Integer updateId = update.getUpdateId();
+            if (dispatcher == null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    onUpdateReceived(update);
+                } finally {
+                    completed(updateId);
+                }
+            } else if (!dispatcher.submit(getUpdatePriority(update), () -> {
+                try {
+                    onUpdateReceived(update);
+                } finally {
+                    completed(updateId);
+                }
+            })) {
+                log.warn("Dropped updates from {}: dispatcher is shut down or the handler was interrupted", getUpdateId(update));
+                return;
+            }
+        }
+    }
+
     /**
      * Handles incoming updates.
+     * Records the update if a recorder is set, and invalidates chat info cached for the chat if needed.
+     * Runs the interceptor chain first and drops the update if any interceptor rejects it.
      * Filters logic based on the chat ID of the message in the update.
+     * Single-chat logic handlers are matched first, then multi-chat logic handlers in registration order.
      * If a matching logic handler is found, the update is passed to it.
      * If no match is found, uses defaultBotLogic if available.
      *
@@ -66,22 +317,297 @@ public class RouterBot extends TelegramLongPollingBot {
      */
     @Override
     public void onUpdateReceived(final Update update) {
+        if (update == null) {
+            return;
+        }
+        final UpdateRecorder recorder = updateRecorder;
+        if (recorder != null) {
+            recorder.record(update);
+        }
         final Long chatId = getChatIdFromUpdate(update);
+        final UpdateReceivedEvent received = new UpdateReceivedEvent();
+        if (received.shouldCommit()) {
+            received.updateId = getUpdateId(update);
+            received.updateType = getUpdateType(update);
+            received.chatId = chatId != null ? chatId : 0L;
+            received.commit();
+        }
         if (chatId == null) {
+            emitRouted(update, null, UpdateRoutedEvent.UNROUTED, null);
             return;
         }
-        botLogics.stream()
-                 .filter(botLogic -> botLogic.getChatId().equals(chatId))
-                 .findFirst()
-                 .ifPresentOrElse(
-                         botLogic -> botLogic.processUpdate(update),
-                         () -> {
-                             if (defaultBotLogic != null) {
-                                 defaultBotLogic.setChatId(chatId);
-                                 defaultBotLogic.processUpdate(update);
-                             }
-                         }
-                 );
+        final ChatInfoCache cache = chatInfoCache;
+        if (cache != null) {
+            cache.onUpdate(update, chatId);
+        }
+        for (final UpdateInterceptor interceptor : interceptors) {
+            if (!interceptor.intercept(update, chatId)) {
+                emitRouted(update, chatId, UpdateRoutedEvent.INTERCEPTED, interceptor.getClass());
+                return;
+            }
+        }
+        final AbstractBotLogic botLogic = findLogic(chatId);
+        if (botLogic instanceof final MultiChatBotLogic multiChatLogic) {
+            multiChatLogic.setChatId(chatId);
+            handle(update, chatId, multiChatLogic);
+        } else if (botLogic != null) {
+            handle(update, chatId, botLogic);
+        } else if (defaultBotLogic != null) {
+            defaultBotLogic.setChatId(chatId);
+            handle(update, chatId, defaultBotLogic);
+        } else {
+            emitRouted(update, chatId, UpdateRoutedEvent.UNROUTED, null);
+        }
+    }
+
+    /**
+     * Stops the priority lanes, if enabled, closes the update recorder, outbox and transport, if any,
+     * and releases the sender resources.
+     */
+    @Override
+    public void onClosing() {
+        final LaneExecutor dispatcher = dispatchExecutor;
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            sendExecutor.shutdown();
+        }
+        final UpdateRecorder recorder = updateRecorder;
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (final IOException e) {
+                log.error("Failed to close update recorder: {}", e.getMessage());
+            }
+        }
+        final Outbox currentOutbox = outbox;
+        if (currentOutbox != null) {
+            try {
+                currentOutbox.close();
+            } catch (final IOException e) {
+                log.error("Failed to close outbox: {}", e.getMessage());
+            }
+        }
+        final BotTransport currentTransport = transport;
+        if (currentTransport != null) {
+            try {
+                currentTransport.close();
+            } catch (final IOException e) {
+                log.error("Failed to close transport: {}", e.getMessage());
+            }
+        }
+        super.onClosing();
+    }
+
+    /**
+     * Checks whether an update for the chat would reach a logic handler or the recorder.
+     * Used by RouterBotSession to skip deserializing updates that would be discarded.
+     *
+     * @param chatId the chat ID of the update, or null if the update type carries none
+     * @return true if the update should be delivered to onUpdateReceived
+     */
+    boolean wantsUpdate(final Long chatId) {
+        if (updateRecorder != null) {
+            return true;
+        }
+        if (chatId == null) {
+            return false;
+        }
+        return defaultBotLogic != null || findLogic(chatId) != null;
+    }
+
+    /**
+     * Returns the executor for queued outbound calls.
+     *
+     * @return the send executor, or null if priority lanes are disabled
+     */
+    LaneExecutor getSendExecutor() {
+        return sendExecutor;
+    }
+
+    /**
+     * Returns the chat info cache.
+     *
+     * @return the cache, or null if not set
+     */
+    ChatInfoCache getChatInfoCache() {
+        return chatInfoCache;
+    }
+
+    /**
+     * Returns the configured transport.
+     *
+     * @return the transport, or null if the default Apache HTTP client is used
+     */
+    BotTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the number of updates passed to the bot and not yet handled, including those queued in the dispatch lanes.
+     *
+     * @return the in-flight update count
+     */
+    int getInFlightUpdateCount() {
+        return inFlightUpdates.size();
+    }
+
+    /**
+     * Returns the lowest ID among updates passed to the bot and not yet handled.
+     *
+     * @return the update ID, or null if no update is in flight
+     */
+    Integer getFirstInFlightUpdate() {
+        return inFlightUpdates.isEmpty() ? null : inFlightUpdates.first();
+    }
+
+    /**
+     * Returns the number of calls queued in the send lane.
+     *
+     * @return the queued call count, or 0 if priority lanes are disabled
+     */
+    int getQueuedCallCount() {
+        final LaneExecutor sender = sendExecutor;
+        return sender != null ? sender.queued() : 0;
+    }
+
+    /**
+     * Waits until the send lane has run all queued calls.
+     *
+     * @param timeoutNanos the maximum time to wait
+     * @return true if all calls were sent or priority lanes are disabled
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitCallsSent(final long timeoutNanos) throws InterruptedException {
+        final LaneExecutor sender = sendExecutor;
+        return sender == null || sender.awaitIdle(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the priority lanes, discarding queued updates and calls.
+     * Discarded updates stay counted as in flight.
+     *
+     * @return the number of discarded calls
+     */
+    int abandonQueuedWork() {
+        final LaneExecutor dispatcher = dispatchExecutor;
+        if (dispatcher == null) {
+            return 0;
+        }
+        dispatcher.shutdownNow();
+        return sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the durable outbox.
+     *
+     * @return the outbox, or null if not set
+     */
+    Outbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Resolves the priority of a chat: the chat override if set, otherwise the priority of the given logic handler.
+     *
+     * @param chatId   the chat ID, may be null
+     * @param botLogic the logic handler serving the chat, may be null
+     * @return the priority, NORMAL if neither is set
+     */
+    Priority getPriority(final Long chatId, final AbstractBotLogic botLogic) {
+        final Priority priority = chatId != null ? chatPriorities.get(chatId) : null;
+        if (priority != null) {
+            return priority;
+        }
+        if (botLogic != null && botLogic.getPriority() != null) {
+            return botLogic.getPriority();
+        }
+        return Priority.NORMAL;
+    }
+
+    private Priority getUpdatePriority(final Update update) {
+        final Long chatId = getChatIdFromUpdate(update);
+        if (chatId == null) {
+            return Priority.NORMAL;
+        }
+        final AbstractBotLogic botLogic = findLogic(chatId);
+        return getPriority(chatId, botLogic != null ? botLogic : defaultBotLogic);
+    }
+
+    private AbstractBotLogic findLogic(final Long chatId) {
+        final AbstractBotLogic botLogic = logicsByChat.get(chatId);
+        if (botLogic != null) {
+            return botLogic;
+        }
+        for (final MultiChatBotLogic multiChatLogic : multiChatLogics) {
+            if (multiChatLogic.containsChat(chatId)) {
+                return multiChatLogic;
+            }
+        }
+        return null;
+    }
+
+    private void handle(final Update update, final Long chatId, final AbstractBotLogic botLogic) {
+        emitRouted(update, chatId, UpdateRoutedEvent.HANDLED, botLogic.getClass());
+        final HandlerEvent event = new HandlerEvent();
+        event.begin();
+        try {
+            botLogic.processUpdate(update);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.updateId = getUpdateId(update);
+                event.updateType = getUpdateType(update);
+                event.chatId = chatId;
+                event.handler = botLogic.getClass();
+                event.commit();
+            }
+        }
+    }
+
+    private void emitRouted(final Update update, final Long chatId, final String route, final Class<?> handler) {
+        final UpdateRoutedEvent event = new UpdateRoutedEvent();
+        if (event.shouldCommit()) {
+            event.updateId = getUpdateId(update);
+            event.updateType = getUpdateType(update);
+            event.chatId = chatId != null ? chatId : 0L;
+            event.route = route;
+            event.handler = handler;
+            event.commit();
+        }
+    }
+
+    private void completed(final Integer updateId) {
+        if (updateId != null) {
+            inFlightUpdates.remove(updateId);
+        }
+    }
+
+    private static int getUpdateId(final Update update) {
+        return update.getUpdateId() != null ? update.getUpdateId() : 0;
+    }
+
+    static String getUpdateType(final Update update) {
+        return switch (update) {
+            case final Update u when u.hasMessage() -> "message";
+            case final Update u when u.hasEditedMessage() -> "edited_message";
+            case final Update u when u.hasChannelPost() -> "channel_post";
+            case final Update u when u.hasEditedChannelPost() -> "edited_channel_post";
+            case final Update u when u.hasCallbackQuery() -> "callback_query";
+            case final Update u when u.hasMyChatMember() -> "my_chat_member";
+            case final Update u when u.hasChatMember() -> "chat_member";
+            case final Update u when u.hasChatJoinRequest() -> "chat_join_request";
+            case final Update u when u.getMessageReaction() != null -> "message_reaction";
+            case final Update u when u.getMessageReactionCount() != null -> "message_reaction_count";
+            case final Update u when u.getChatBoost() != null -> "chat_boost";
+            case final Update u when u.getRemovedChatBoost() != null -> "removed_chat_boost";
+            case final Update u when u.hasInlineQuery() -> "inline_query";
+            case final Update u when u.getChosenInlineQuery() != null -> "chosen_inline_result";
+            case final Update u when u.hasShippingQuery() -> "shipping_query";
+            case final Update u when u.hasPreCheckoutQuery() -> "pre_checkout_query";
+            case final Update u when u.hasPoll() -> "poll";
+            case final Update u when u.hasPollAnswer() -> "poll_answer";
+            default -> "unknown";
+        };
     }
 
     private Long getChatIdFromUpdate(final Update upd) {
@@ -0,0 +1,107 @@
+package ru.castroy10.bot;
+
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+/**
+ * Bot options extended with settings of RouterBotSession.
+ */
+public class RouterBotOptions extends DefaultBotOptions {
+
+    private boolean lazyUpdateParsing;
+    private boolean pipelinedPolling;
+    private int parserThreads = 1;
+    private int prefetchBatches = 2;
+
+    /**
+     * Constructs a new RouterBotOptions instance with default settings.
+     */
+    public RouterBotOptions() {
+        super();
+    }
+
+    /**
+     * Returns whether getUpdates responses are parsed lazily.
+     *
+     * @return true if only updates that will be handled are fully deserialized
+     */
+    public boolean isLazyUpdateParsing() {
+        return lazyUpdateParsing;
+    }
+
+    /**
+     * Sets whether getUpdates responses are parsed lazily.
+     * In lazy mode the session first reads only the update ID, type and chat ID of each update,
+     * and builds the full Update object only if RouterBot has a handler for it.
+     *
+     * @param lazyUpdateParsing true to enable lazy parsing
+     */
+    public void setLazyUpdateParsing(final boolean lazyUpdateParsing) {
+        this.lazyUpdateParsing = lazyUpdateParsing;
+    }
+
+    /**
+     * Returns whether the session requests the next getUpdates batch before the current one is parsed.
+     *
+     * @return true if pipelined polling is enabled
+     */
+    public boolean isPipelinedPolling() {
+        return pipelinedPolling;
+    }
+
+    /**
+     * Sets whether the session requests the next getUpdates batch before the current one is parsed.
+     * In pipelined mode the reader thread only scans update IDs to advance the offset and issues
+     * the next request right away; batches are deserialized by parser threads and handed to the bot in order.
+     *
+     * @param pipelinedPolling true to enable pipelined polling
+     */
+    public void setPipelinedPolling(final boolean pipelinedPolling) {
+        this.pipelinedPolling = pipelinedPolling;
+    }
+
+    /**
+     * Returns the number of threads that deserialize batches in pipelined mode.
+     *
+     * @return the parser thread count
+     */
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    /**
+     * Sets the number of threads that deserialize batches in pipelined mode.
+     *
+     * @param parserThreads the parser thread count, at least 1
+     * @throws IllegalArgumentException if the count is less than 1
+     */
+    public void setParserThreads(final int parserThreads) {
+        if (parserThreads < 1) {
+            throw new IllegalArgumentException("Parser threads must be positive");
+        }
+        this.parserThreads = parserThreads;
+    }
+
+    /**
+     * Returns the number of batches fetched ahead of the bot in pipelined mode.
+     *
+     * @return the prefetch buffer size
+     */
+    public int getPrefetchBatches() {
+        return prefetchBatches;
+    }
+
+    /**
+     * Sets the number of batches fetched ahead of the bot in pipelined mode.
+     * When the buffer is full, polling pauses until the bot takes a batch.
+     *
+     * @param prefetchBatches the prefetch buffer size, at least 1
+     * @throws IllegalArgumentException if the size is less than 1
+     */
+    public void setPrefetchBatches(final int prefetchBatches) {
+        if (prefetchBatches < 1) {
+            throw new IllegalArgumentException("Prefetch batches must be positive");
+        }
+        this.prefetchBatches = prefetchBatches;
+    }
+
+}
@@ -0,0 +1,542 @@
+package ru.castroy10.bot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.Constants;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.BackOff;
+import org.telegram.telegrambots.meta.generics.BotOptions;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.meta.generics.LongPollingBot;
+import ru.castroy10.bot.outbox.Outbox;
+import ru.castroy10.bot.transport.ApacheBotTransport;
+import ru.castroy10.bot.transport.BotTransport;
+
+/**
+ * Long polling session used by TgBotBuilder.
+ * A reader thread fetches getUpdates batches and a handler thread passes them to the bot.
+ * Requests go through the transport configured on RouterBot, or through an Apache HTTP client otherwise.
+ * With lazy update parsing enabled in RouterBotOptions, updates that RouterBot would discard
+ * are skipped before they are deserialized. With pipelined polling enabled, the reader only scans
+ * update IDs before requesting the next batch, and parser threads build the updates while it waits.
+ * stop(Duration) stops polling at once and lets received updates and queued calls finish before closing the bot.
+ */
+public class RouterBotSession implements BotSession {
+
+    private static final Logger log = LoggerFactory.getLogger(RouterBotSession.class);
+    private static final long DEFAULT_BACK_OFF_MILLIS = 1000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMillis(Constants.SOCKET_TIMEOUT);
+    private static final long REQUEST_TIMEOUT_MARGIN_SECONDS = 10;
+    private static final long DRAIN_POLL_MILLIS = 10;
+    private static final long THREAD_JOIN_MILLIS = 1000;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final UpdateBatchParser parser = new UpdateBatchParser();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LongAdder skippedUpdates = new LongAdder();
+    private final ConcurrentSkipListMap<Integer, Integer> undeliveredBatches = new ConcurrentSkipListMap<>();
+
+    private DefaultBotOptions options;
+    private String token;
+    private LongPollingBot callback;
+    private int lastReceivedUpdate;
+    private int releasedUpdates;
+    private BotTransport transport;
+    private BotTransport ownTransport;
+    private PollingMetrics metrics = new PollingMetrics();
+    private volatile boolean polling;
+    private BlockingQueue<Batch> batches;
+    private ExecutorService parsers;
+    private Duration requestTimeout;
+    private Thread readerThread;
+    private Thread handlerThread;
+
+    /**
+     * Batch of updates waiting for the handler thread.
+     *
+     * @param firstUpdateId the ID of the first update in the batch
+     * @param size          the number of updates in the batch
+     * @param updates       the updates, possibly still being parsed
+     */
+    private record Batch(int firstUpdateId, int size, Future<List<Update>> updates) {
+    }
+
+    /**
+     * Constructs a new RouterBotSession instance.
+     * Options, token and callback are set by TelegramBotsApi when the bot is registered.
+     */
+    public RouterBotSession() {
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running.get()) {
+            throw new IllegalStateException("Session already running");
+        }
+        running.set(true);
+        polling = true;
+        lastReceivedUpdate = 0;
+        releasedUpdates = 0;
+        undeliveredBatches.clear();
+        transport = callback instanceof final RouterBot bot ? bot.getTransport() : null;
+        if (transport == null) {
+            ownTransport = new ApacheBotTransport(options);
+            transport = ownTransport;
+        }
+        if (callback instanceof final RouterBot bot) {
+            metrics = bot.getPollingMetrics();
+        }
+        final Duration pollTimeout = Duration.ofSeconds(options.getGetUpdatesTimeout() + REQUEST_TIMEOUT_MARGIN_SECONDS);
+        requestTimeout = pollTimeout.compareTo(REQUEST_TIMEOUT) > 0 ? pollTimeout : REQUEST_TIMEOUT;
+        if (isPipelined()) {
+            final RouterBotOptions routerOptions = (RouterBotOptions) options;
+            batches = new ArrayBlockingQueue<>(routerOptions.getPrefetchBatches());
+            parsers = Executors.newFixedThreadPool(routerOptions.getParserThreads(), task -> {
+                final Thread thread = new Thread(task, "RouterBot Update Parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            batches = new LinkedBlockingQueue<>();
+        }
+
+        readerThread = new Thread(this::readUpdates, "RouterBot Telegram Connection");
+        handlerThread = new Thread(this::handleUpdates, "RouterBot Telegram Executor");
+        readerThread.start();
+        handlerThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running.get()) {
+            throw new IllegalStateException("Session already stopped");
+        }
+        stopPolling();
+        shutdown();
+    }
+
+    /**
+     * Stops the session gracefully.
+     * Polling stops at once, including the getUpdates request in flight, and a pipelined batch still waiting
+     * for room in the prefetch buffer is counted as abandoned. Updates already received,
+     * calls queued in the send lane and calls pending in the outbox then get until the deadline to finish.
+     * Whatever is left is discarded, except outbox calls, which stay in the journal. Finally the offset is
+     * confirmed to Telegram, pointing at the first abandoned update so that the next session receives it again,
+     * and the bot is closed.
+     *
+     * @param timeout the maximum time to wait for received updates and queued calls
+     * @return the report of drained and abandoned work
+     * @throws IllegalStateException if the session is not running
+     */
+    public synchronized StopReport stop(final Duration timeout) {
+        if (!running.get()) {
+            throw new IllegalStateException("Session already stopped");
+        }
+        final long started = System.nanoTime();
+        final long deadline = started + timeout.toNanos();
+        final RouterBot bot = callback instanceof final RouterBot routerBot ? routerBot : null;
+        final Outbox outbox = bot != null ? bot.getOutbox() : null;
+        stopPolling();
+        joinQuietly(readerThread, deadline);
+
+        final int queuedUpdates = releasedUpdates + undeliveredUpdates() + (bot != null ? bot.getInFlightUpdateCount() : 0);
+        final int queuedCalls = bot != null ? bot.getQueuedCallCount() : 0;
+        final long deliveredBefore = outbox != null ? outbox.getDeliveredCount() : 0;
+        try {
+            awaitUntil(() -> undeliveredBatches.isEmpty() && (bot == null || bot.getInFlightUpdateCount() == 0), deadline);
+            if (bot != null) {
+                bot.awaitCallsSent(Math.max(deadline - System.nanoTime(), 0));
+            }
+            if (outbox != null) {
+                awaitUntil(() -> outbox.getPendingCount() == 0, deadline);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        running.set(false);
+        handlerThread.interrupt();
+        joinQuietly(handlerThread, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(THREAD_JOIN_MILLIS));
+        final int abandonedCalls = bot != null ? bot.abandonQueuedWork() : 0;
+        final int abandonedUpdates = releasedUpdates + undeliveredUpdates() + (bot != null ? bot.getInFlightUpdateCount() : 0);
+        final int confirmedOffset = confirmOffset(bot);
+        final int outboxPending = outbox != null ? outbox.getPendingCount() : 0;
+        final long outboxDelivered = outbox != null ? outbox.getDeliveredCount() - deliveredBefore : 0;
+        shutdown();
+
+        final StopReport report = new StopReport(Math.max(queuedUpdates - abandonedUpdates, 0), abandonedUpdates,
+                                                 Math.max(queuedCalls - abandonedCalls, 0) + (int) outboxDelivered, abandonedCalls,
+                                                 outboxPending, confirmedOffset, Duration.ofNanos(System.nanoTime() - started));
+        log.info("Session stopped: {}", report);
+        return report;
+    }
+
+    private void stopPolling() {
+        polling = false;
+        readerThread.interrupt();
+        if (ownTransport != null) {
+            try {
+                ownTransport.close();
+            } catch (final IOException e) {
+                log.warn("Failed to close HTTP client: {}", e.getMessage());
+            }
+            ownTransport = null;
+        }
+    }
+
+    private void shutdown() {
+        running.set(false);
+        handlerThread.interrupt();
+        if (parsers != null) {
+            parsers.shutdownNow();
+            parsers = null;
+        }
+        if (callback != null) {
+            callback.onClosing();
+        }
+    }
+
+    /**
+     * Confirms received updates to Telegram with a getUpdates call without waiting.
+     * The offset is the first update not processed, or the one after the last received update.
+     *
+     * @return the confirmed offset, or 0 if nothing was received or the call failed
+     */
+    private int confirmOffset(final RouterBot bot) {
+        final Map.Entry<Integer, Integer> firstBatch = undeliveredBatches.firstEntry();
+        final Integer firstInFlight = bot != null ? bot.getFirstInFlightUpdate() : null;
+        int offset = lastReceivedUpdate + 1;
+        if (firstBatch != null) {
+            offset = Math.min(offset, firstBatch.getKey());
+        }
+        if (firstInFlight != null) {
+            offset = Math.min(offset, firstInFlight);
+        }
+        if (lastReceivedUpdate == 0 || !(callback instanceof final AbsSender sender)) {
+            return 0;
+        }
+        try {
+            sender.execute(GetUpdates.builder().offset(offset).limit(1).timeout(0).build());
+            return offset;
+        } catch (final TelegramApiException e) {
+            log.error("Failed to confirm offset {}: {}", offset, e.getMessage());
+            return 0;
+        }
+    }
+
+    private int undeliveredUpdates() {
+        return undeliveredBatches.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static void awaitUntil(final BooleanSupplier condition, final long deadline) throws InterruptedException {
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(DRAIN_POLL_MILLIS);
+        }
+    }
+
+    private static void joinQuietly(final Thread thread, final long deadline) {
+        try {
+            thread.join(Duration.ofNanos(Math.max(deadline - System.nanoTime(), 1)));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public void setOptions(final BotOptions options) {
+        if (this.options != null) {
+            throw new InvalidParameterException("BotOptions has already been set");
+        }
+        this.options = (DefaultBotOptions) options;
+    }
+
+    @Override
+    public void setToken(final String token) {
+        if (this.token != null) {
+            throw new InvalidParameterException("Token has already been set");
+        }
+        this.token = token;
+    }
+
+    @Override
+    public void setCallback(final LongPollingBot callback) {
+        if (this.callback != null) {
+            throw new InvalidParameterException("Callback has already been set");
+        }
+        this.callback = callback;
+    }
+
+    /**
+     * Returns the number of updates skipped without deserialization because no handler would receive them.
+     *
+     * @return the skipped update count
+     */
+    public long getSkippedUpdates() {
+        return skippedUpdates.sum();
+    }
+
+    /**
+     * Returns the polling metrics: batch sizes, idle and stall time.
+     * When the callback is a RouterBot, these are the metrics returned by RouterBot.getPollingMetrics().
+     *
+     * @return the polling metrics
+     */
+    public PollingMetrics getPollingMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Converts a getUpdates response into the updates to deliver and advances the offset.
+     *
+     * @param body the raw response body
+     * @return the new updates that the bot should receive
+     * @throws IOException                 if the body cannot be parsed
+     * @throws TelegramApiRequestException if Telegram returned an error
+     */
+    List<Update> selectUpdates(final byte[] body) throws IOException, TelegramApiRequestException {
+        final RouterBot router = isLazy() && callback instanceof final RouterBot bot ? bot : null;
+        if (router == null) {
+            final List<Update> updates = new ArrayList<>();
+            for (final Update update : new GetUpdates().deserializeResponse(new String(body, StandardCharsets.UTF_8))) {
+                if (update.getUpdateId() > lastReceivedUpdate) {
+                    lastReceivedUpdate = update.getUpdateId();
+                    updates.add(update);
+                }
+            }
+            return updates;
+        }
+
+        return materialize(acceptUpdates(body, router));
+    }
+
+    /**
+     * Scans a getUpdates response, advances the offset and returns the updates to deliver, not yet deserialized.
+     *
+     * @param body   the raw response body
+     * @param router the bot used to skip updates without a handler, or null to accept every new update
+     */
+    private List<UpdateBatchParser.PendingUpdate> acceptUpdates(final byte[] body, final RouterBot router)
+            throws IOException, TelegramApiRequestException {
+        final List<UpdateBatchParser.PendingUpdate> pending = parser.scan(body);
+        final List<UpdateBatchParser.PendingUpdate> accepted = new ArrayList<>(pending.size());
+        for (final UpdateBatchParser.PendingUpdate update : pending) {
+            if (update.updateId() <= lastReceivedUpdate) {
+                continue;
+            }
+            lastReceivedUpdate = update.updateId();
+            if (router == null || router.wantsUpdate(update.chatId())) {
+                accepted.add(update);
+            } else {
+                skippedUpdates.increment();
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Builds the updates. The offset is already past them, so an update that cannot be deserialized is logged and dropped.
+     */
+    private List<Update> materialize(final List<UpdateBatchParser.PendingUpdate> pending) {
+        final List<Update> updates = new ArrayList<>(pending.size());
+        for (final UpdateBatchParser.PendingUpdate update : pending) {
+            try {
+                updates.add(parser.materialize(update));
+            } catch (final IOException e) {
+                log.error("Failed to parse update {}: {}", update.updateId(), e.getMessage());
+            }
+        }
+        return updates;
+    }
+
+    private boolean isLazy() {
+        return options instanceof final RouterBotOptions routerOptions && routerOptions.isLazyUpdateParsing();
+    }
+
+    private boolean isPipelined() {
+        return options instanceof final RouterBotOptions routerOptions && routerOptions.isPipelinedPolling();
+    }
+
+    private void readUpdates() {
+        final BackOff backOff = options.getBackOff();
+        while (polling) {
+            try {
+                final PollEvent event = new PollEvent();
+                event.begin();
+                final int offset = lastReceivedUpdate + 1;
+                final long started = System.nanoTime();
+                final byte[] body = fetchUpdates();
+                final long elapsed = System.nanoTime() - started;
+                event.end();
+                if (!polling) {
+                    break;
+                }
+                final long skippedBefore = skippedUpdates.sum();
+                final int accepted = parsers != null ? prefetch(body) : enqueue(body);
+                final int batchSize = accepted + (int) (skippedUpdates.sum() - skippedBefore);
+                metrics.recordPoll(batchSize, elapsed);
+                if (event.shouldCommit()) {
+                    event.offset = offset;
+                    event.batchSize = batchSize;
+                    event.commit();
+                }
+                if (backOff != null) {
+                    backOff.reset();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final InterruptedIOException e) {
+                if (!polling) {
+                    break;
+                }
+                log.debug("getUpdates request interrupted: {}", e.getMessage());
+            } catch (final TelegramApiRequestException | IOException e) {
+                if (!polling) {
+                    break;
+                }
+                log.error("Failed to get updates: {}", e.getMessage());
+                if (!sleepBackOff(backOff)) {
+                    break;
+                }
+            } catch (final Exception e) {
+                if (!polling) {
+                    break;
+                }
+                log.error("Failed to read updates: {}", e.getMessage(), e);
+                if (!sleepBackOff(backOff)) {
+                    break;
+                }
+            }
+        }
+        log.debug("Reader thread stopped");
+    }
+
+    private static boolean sleepBackOff(final BackOff backOff) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(backOff != null ? backOff.nextBackOffMillis() : DEFAULT_BACK_OFF_MILLIS);
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int enqueue(final byte[] body) throws IOException, TelegramApiRequestException {
+        final List<Update> updates = selectUpdates(body);
+        if (!updates.isEmpty()) {
+            undeliveredBatches.put(updates.getFirst().getUpdateId(), updates.size());
+            batches.add(new Batch(updates.getFirst().getUpdateId(), updates.size(), CompletableFuture.completedFuture(updates)));
+        }
+        return updates.size();
+    }
+
+    /**
+     * Advances the offset and passes the batch to a parser thread, waiting while the prefetch buffer is full.
+     */
+    private int prefetch(final byte[] body) throws IOException, TelegramApiRequestException, InterruptedException {
+        final List<UpdateBatchParser.PendingUpdate> accepted = acceptUpdates(body, isLazy() && callback instanceof final RouterBot bot ? bot : null);
+        if (!accepted.isEmpty()) {
+            final int firstUpdateId = accepted.getFirst().updateId();
+            undeliveredBatches.put(firstUpdateId, accepted.size());
+            final Batch batch = new Batch(firstUpdateId, accepted.size(), parsers.submit(() -> materialize(accepted)));
+            final long started = System.nanoTime();
+            try {
+                batches.put(batch);
+            } catch (final InterruptedException e) {
+                // The handler never sees this batch, so it is returned to Telegram instead of holding up a graceful stop.
+                batch.updates().cancel(true);
+                undeliveredBatches.remove(firstUpdateId);
+                releasedUpdates = accepted.size();
+                lastReceivedUpdate = firstUpdateId - 1;
+                throw e;
+            }
+            metrics.recordStall(System.nanoTime() - started);
+        }
+        return accepted.size();
+    }
+
+    private byte[] fetchUpdates() throws IOException {
+        final GetUpdates request = GetUpdates.builder()
+                                             .offset(lastReceivedUpdate + 1)
+                                             .limit(options.getGetUpdatesLimit())
+                                             .timeout(options.getGetUpdatesTimeout())
+                                             .build();
+        if (options.getAllowedUpdates() != null) {
+            request.setAllowedUpdates(options.getAllowedUpdates());
+        }
+        return transport.post(options.getBaseUrl() + token + "/" + GetUpdates.PATH, objectMapper.writeValueAsBytes(request), requestTimeout);
+    }
+
+    private void handleUpdates() {
+        while (running.get()) {
+            final Batch batch;
+            try {
+                batch = batches.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            final List<Update> updates;
+            try {
+                updates = batch.updates().get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final ExecutionException e) {
+                log.error("Failed to parse updates: {}", e.getCause().getMessage());
+                undeliveredBatches.remove(batch.firstUpdateId());
+                continue;
+            }
+            // RouterBot tracks the updates it was given, so the batch is released before it is handed over.
+            final boolean tracked = callback instanceof RouterBot;
+            if (tracked) {
+                undeliveredBatches.remove(batch.firstUpdateId());
+            }
+            try {
+                if (!updates.isEmpty()) {
+                    callback.onUpdatesReceived(updates);
+                }
+            } catch (final Exception e) {
+                log.error("Failed to handle updates: {}", e.getMessage(), e);
+            } finally {
+                if (!tracked) {
+                    undeliveredBatches.remove(batch.firstUpdateId());
+                }
+            }
+        }
+        log.debug("Handler thread stopped");
+    }
+
+}
@@ -0,0 +1,29 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+
+/**
+ * Result of a graceful stop of RouterBotSession.
+ *
+ * @param drainedUpdates   the received updates handled after polling stopped
+ * @param abandonedUpdates the received updates not handled before the deadline; Telegram delivers them again
+ *                         to the next session unless the offset could not be confirmed
+ * @param drainedCalls     the queued calls sent after polling stopped, from the send lane and the outbox
+ * @param abandonedCalls   the calls discarded from the send lane at the deadline
+ * @param outboxPending    the calls left in the outbox journal, sent when the outbox is reopened
+ * @param confirmedOffset  the offset confirmed to Telegram, or 0 if nothing was received or confirmation failed
+ * @param elapsed          the duration of the stop
+ */
+public record StopReport(int drainedUpdates, int abandonedUpdates, int drainedCalls, int abandonedCalls,
+                         int outboxPending, int confirmedOffset, Duration elapsed) {
+
+    /**
+     * Returns whether all received updates and queued calls finished before the deadline.
+     *
+     * @return true if nothing was abandoned or left in the outbox
+     */
+    public boolean isComplete() {
+        return abandonedUpdates == 0 && abandonedCalls == 0 && outboxPending == 0;
+    }
+
+}
@@ -0,0 +1,234 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache with time-based expiry and single-flight loading.
+ * Concurrent lookups of the same missing key share one loader invocation.
+ * A load that is still running when its key is invalidated returns its value to the callers
+ * but does not store it, so the next lookup loads again.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class TtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<K, Entry<V>> entries;
+    private final ConcurrentHashMap<K, Load<V>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new TtlCache instance.
+     *
+     * @param maxSize the maximum number of entries kept in the cache
+     * @param ttl     the time after which an entry expires
+     */
+    TtlCache(final int maxSize, final Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new TtlCache instance with a custom clock.
+     *
+     * @param maxSize the maximum number of entries kept in the cache
+     * @param ttl     the time after which an entry expires
+     * @param clock   the source of monotonic time in nanoseconds
+     */
+    TtlCache(final int maxSize, final Duration ttl, final LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache TTL must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                return size() > TtlCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, loading it on a miss.
+     * Null values and failed loads are not cached.
+     *
+     * @param key    the cache key
+     * @param loader the loader invoked when the key is missing or expired
+     * @return the cached or freshly loaded value
+     */
+    V get(final K key, final Supplier<V> loader) {
+        final V cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        final Load<V> own = new Load<>();
+        final Load<V> inFlight = loading.putIfAbsent(key, own);
+        if (inFlight != null) {
+            hits.increment();
+            return await(inFlight.future);
+        }
+
+        try {
+            final V loadedMeanwhile = lookup(key);
+            if (loadedMeanwhile != null) {
+                hits.increment();
+                own.future.complete(loadedMeanwhile);
+                return loadedMeanwhile;
+            }
+            misses.increment();
+            final V value = loader.get();
+            if (value != null) {
+                synchronized (entries) {
+                    if (!own.stale) {
+                        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+                    }
+                }
+            }
+            own.future.complete(value);
+            return value;
+        } catch (final RuntimeException | Error e) {
+            own.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, own);
+        }
+    }
+
+    /**
+     * Removes the entry for the key and discards the result of a load of it that is still running.
+     *
+     * @param key the cache key
+     */
+    void invalidate(final K key) {
+        synchronized (entries) {
+            entries.remove(key);
+            final Load<V> inFlight = loading.remove(key);
+            if (inFlight != null) {
+                inFlight.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries whose key matches the predicate and discards the results of running loads of them.
+     *
+     * @param predicate the key filter
+     */
+    void invalidateIf(final Predicate<K> predicate) {
+        synchronized (entries) {
+            entries.keySet().removeIf(predicate);
+            loading.entrySet().removeIf(load -> {
+                if (predicate.test(load.getKey())) {
+                    load.getValue().stale = true;
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Removes all entries and discards the results of running loads.
+     */
+    void clear() {
+        invalidateIf(key -> true);
+    }
+
+    /**
+     * Returns the number of entries currently held, including expired ones not yet evicted.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups served without invoking the loader.
+     *
+     * @return the hit count
+     */
+    long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that invoked the loader.
+     *
+     * @return the miss count
+     */
+    long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the share of lookups served without invoking the loader.
+     *
+     * @return the hit ratio between 0 and 1, or 0 if there were no lookups
+     */
+    double hitRatio() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private V lookup(final K key) {
+        synchronized (entries) {
+            final Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() - entry.expiresAt() >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private V await(final CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof final RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof final Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final class Load<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private boolean stale;
+
+    }
+
+}
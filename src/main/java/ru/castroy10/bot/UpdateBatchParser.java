@@ -0,0 +1,205 @@
+package ru.castroy10.bot;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+/**
+ * Streaming parser of getUpdates responses.
+ * Extracts only the update ID, the update type and the chat ID of each update, and keeps the position
+ * of the update in the response body so that the full Update object is built only when it is needed.
+ * Chat ID resolution follows the same rules as RouterBot.
+ */
+final class UpdateBatchParser {
+
+    private static final Set<String> CHAT_TYPES = Set.of(
+            "message", "edited_message", "channel_post", "edited_channel_post",
+            "my_chat_member", "chat_member", "chat_join_request",
+            "message_reaction", "message_reaction_count", "chat_boost", "removed_chat_boost");
+    private static final Set<String> SENDER_TYPES = Set.of(
+            "inline_query", "chosen_inline_result", "shipping_query", "pre_checkout_query");
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Scans a getUpdates response without building Update objects.
+     *
+     * @param body the raw response body
+     * @return the updates in response order
+     * @throws IOException                 if the body is not valid JSON
+     * @throws TelegramApiRequestException if Telegram returned an error
+     */
+    List<PendingUpdate> scan(final byte[] body) throws IOException, TelegramApiRequestException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            boolean ok = false;
+            Integer errorCode = null;
+            String description = null;
+            List<PendingUpdate> updates = List.of();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "ok" -> ok = value == JsonToken.VALUE_TRUE;
+                    case "error_code" -> errorCode = parser.getIntValue();
+                    case "description" -> description = parser.getText();
+                    case "result" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            updates = scanResult(parser, body);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!ok) {
+                throw new TelegramApiRequestException("Error getting updates: [" + errorCode + "] " + description);
+            }
+            return updates;
+        }
+    }
+
+    /**
+     * Builds the full Update object for a scanned update.
+     *
+     * @param update the scanned update
+     * @return the Update object
+     * @throws IOException if the update cannot be deserialized
+     */
+    Update materialize(final PendingUpdate update) throws IOException {
+        return objectMapper.readValue(update.source(), update.offset(), update.length(), Update.class);
+    }
+
+    private List<PendingUpdate> scanResult(final JsonParser parser, final byte[] body) throws IOException {
+        final List<PendingUpdate> updates = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            final int start = (int) parser.currentTokenLocation().getByteOffset();
+            int updateId = 0;
+            String type = null;
+            Long chatId = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if ("update_id".equals(field)) {
+                    updateId = parser.getIntValue();
+                } else if (type == null && value == JsonToken.START_OBJECT) {
+                    type = field;
+                    chatId = scanPayload(parser, field);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            final int end = (int) parser.currentTokenLocation().getByteOffset() + 1;
+            updates.add(new PendingUpdate(updateId, type, chatId, body, start, end - start));
+        }
+        return updates;
+    }
+
+    private Long scanPayload(final JsonParser parser, final String type) throws IOException {
+        final boolean chatType = CHAT_TYPES.contains(type);
+        final boolean callback = "callback_query".equals(type);
+        final boolean pollAnswer = "poll_answer".equals(type);
+        if (!chatType && !callback && !pollAnswer && !SENDER_TYPES.contains(type)) {
+            parser.skipChildren();
+            return null;
+        }
+
+        Long chatId = null;
+        Long senderId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            if (value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "chat" -> {
+                    if (chatType) {
+                        chatId = readId(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "message" -> {
+                    if (callback) {
+                        chatId = readNestedChatId(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "voter_chat" -> chatId = pollAnswer ? readId(parser) : skip(parser);
+                case "from" -> senderId = callback || !chatType && !pollAnswer ? readId(parser) : skip(parser);
+                case "user" -> senderId = pollAnswer ? readId(parser) : skip(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (chatType) {
+            return chatId;
+        }
+        return chatId != null ? chatId : senderId;
+    }
+
+    private Long readNestedChatId(final JsonParser parser) throws IOException {
+        Long chatId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && "chat".equals(field)) {
+                chatId = readId(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return chatId;
+    }
+
+    private Long readId(final JsonParser parser) throws IOException {
+        Long id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT && "id".equals(field)) {
+                id = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static Long skip(final JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    private static void expect(final JsonToken actual, final JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected token " + actual + ", expected " + expected);
+        }
+    }
+
+    /**
+     * An update located in a getUpdates response but not yet deserialized.
+     *
+     * @param updateId the update ID
+     * @param type     the update type, equal to the name of its payload field
+     * @param chatId   the chat ID resolved for the update, or null if the type carries none
+     * @param source   the response body
+     * @param offset   the offset of the update object in the body
+     * @param length   the length of the update object in bytes
+     */
+    record PendingUpdate(int updateId, String type, Long chatId, byte[] source, int offset, int length) {
+    }
+
+}
@@ -0,0 +1,21 @@
+package ru.castroy10.bot;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Inbound update filter executed by RouterBot before routing.
+ * Interceptors run in registration order and the first one returning false stops the chain.
+ */
+@FunctionalInterface
+public interface UpdateInterceptor {
+
+    /**
+     * Inspects the incoming update before it is routed to a logic handler.
+     *
+     * @param update the update received from Telegram
+     * @param chatId the chat ID resolved for the update
+     * @return true to pass the update on, false to drop it
+     */
+    boolean intercept(final Update update, final Long chatId);
+
+}
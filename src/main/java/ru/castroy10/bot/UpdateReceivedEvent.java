@@ -0,0 +1,29 @@
+package ru.castroy10.bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when RouterBot receives an update.
+ */
+@Name("ru.castroy10.UpdateReceived")
+@Label("Update Received")
+@Category({"Telegram Bot", "Inbound"})
+@Description("Update passed to RouterBot by the polling session")
+@StackTrace(false)
+final class UpdateReceivedEvent extends Event {
+
+    @Label("Update ID")
+    int updateId;
+
+    @Label("Update Type")
+    String updateType;
+
+    @Label("Chat ID")
+    long chatId;
+
+}
@@ -0,0 +1,39 @@
+package ru.castroy10.bot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when RouterBot decides where an update goes.
+ */
+@Name("ru.castroy10.UpdateRouted")
+@Label("Update Routed")
+@Category({"Telegram Bot", "Inbound"})
+@Description("Routing decision for an update: handled, intercepted or unrouted")
+@StackTrace(false)
+final class UpdateRoutedEvent extends Event {
+
+    static final String HANDLED = "handled";
+    static final String INTERCEPTED = "intercepted";
+    static final String UNROUTED = "unrouted";
+
+    @Label("Update ID")
+    int updateId;
+
+    @Label("Update Type")
+    String updateType;
+
+    @Label("Chat ID")
+    long chatId;
+
+    @Label("Route")
+    String route;
+
+    @Label("Handler")
+    Class<?> handler;
+
+}
@@ -0,0 +1,434 @@
+package ru.castroy10.bot.outbox;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiValidationException;
+import ru.castroy10.bot.ApiCallEvent;
+import ru.castroy10.bot.Priority;
+
+/**
+ * Durable outbox for outbound API calls.
+ * Calls are written to a segmented journal on disk before they are sent, and sender threads deliver them
+ * and acknowledge each one once Telegram has confirmed it. Callers do not wait for the disk: a sender waits
+ * for the commit of a call before sending it, so consecutive calls from a single handler thread share fsyncs. Calls that were not acknowledged
+ * when the process stopped are sent again after the outbox is reopened, so delivery is at-least-once.
+ * Calls to the same chat are sent one at a time in order; calls to different chats, and calls without a chat,
+ * are sent concurrently by up to {@code senders} threads, so a rate limit or a slow call in one chat does not stall
+ * the others. Throughput is therefore bounded by the number of senders divided by the round trip time.
+ * Chats waiting to send are served by priority with the same lanes as RouterBot: HIGH first, then one LOW chat
+ * for every {@code normalPerLow} NORMAL chats. Calls restored from the journal are sent as NORMAL.
+ * Rate limits (429) and server errors (5xx) are retried; other errors are logged and the call is dropped.
+ * Each attempt is recorded as an ApiCallEvent.
+ */
+public class Outbox implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Outbox.class);
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_SENDERS = 4;
+    private static final int DEFAULT_NORMAL_PER_LOW = 4;
+    private static final long INITIAL_BACK_OFF_MILLIS = 500;
+    private static final long MAX_BACK_OFF_MILLIS = 30_000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final OutboxJournal journal;
+    private final int senderCount;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Map<String, ArrayDeque<Pending>> chats = new HashMap<>();
+    private final Set<String> busyChats = new HashSet<>();
+    private final ArrayDeque<String> high = new ArrayDeque<>();
+    private final ArrayDeque<String> normal = new ArrayDeque<>();
+    private final ArrayDeque<String> low = new ArrayDeque<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder deliveredCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final List<Thread> senders = new ArrayList<>();
+    private int normalPerLow = DEFAULT_NORMAL_PER_LOW;
+    private int normalServed;
+    private boolean closed;
+
+    private record Pending(long sequence, long ticket, String chat, long chatId, Priority priority, BotApiMethod<?> method) {
+    }
+
+    /**
+     * Opens the outbox with 64 MiB journal segments and four sender threads.
+     *
+     * @param directory the directory for journal segments, created if missing
+     * @throws IOException if the journal cannot be read or created
+     */
+    public Outbox(final Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the outbox with four sender threads. Unacknowledged calls found in the journal are queued ahead of new ones.
+     *
+     * @param directory       the directory for journal segments, created if missing
+     * @param maxSegmentBytes the size after which a new segment is started
+     * @throws IOException if the journal cannot be read or created
+     */
+    public Outbox(final Path directory, final long maxSegmentBytes) throws IOException {
+        this(directory, maxSegmentBytes, DEFAULT_SENDERS);
+    }
+
+    /**
+     * Opens the outbox. Unacknowledged calls found in the journal are queued ahead of new ones.
+     *
+     * @param directory       the directory for journal segments, created if missing
+     * @param maxSegmentBytes the size after which a new segment is started
+     * @param senders         the number of threads sending calls to different chats concurrently
+     * @throws IOException if the journal cannot be read or created
+     */
+    public Outbox(final Path directory, final long maxSegmentBytes, final int senders) throws IOException {
+        if (senders <= 0) {
+            throw new IllegalArgumentException("Sender count must be positive");
+        }
+        this.senderCount = senders;
+        this.journal = new OutboxJournal(directory, maxSegmentBytes);
+        for (final OutboxJournal.Entry entry : journal.recovered()) {
+            try {
+                final Class<?> type = Class.forName(entry.type());
+                final JsonNode tree = objectMapper.readTree(entry.json());
+                final BotApiMethod<?> method = (BotApiMethod<?>) objectMapper.treeToValue(tree, type);
+                pendingCount.incrementAndGet();
+                offer(new Pending(entry.sequence(), 0, chatOf(tree, entry.sequence()), chatIdOf(tree), Priority.NORMAL, method));
+            } catch (final ClassNotFoundException | ClassCastException | IOException e) {
+                log.error("Failed to restore outbox entry {} of type {}: {}", entry.sequence(), entry.type(), e.getMessage());
+                journal.ack(entry.sequence());
+            }
+        }
+        if (pendingCount.get() > 0) {
+            log.info("Restored {} undelivered calls from the outbox", pendingCount.get());
+        }
+    }
+
+    /**
+     * Starts delivering queued calls through the sender, serving one LOW chat for every four NORMAL chats.
+     *
+     * @param absSender the sender used to execute calls (e.g. RouterBot)
+     */
+    public void start(final AbsSender absSender) {
+        start(absSender, DEFAULT_NORMAL_PER_LOW);
+    }
+
+    /**
+     * Starts delivering queued calls through the sender.
+     *
+     * @param absSender    the sender used to execute calls (e.g. RouterBot)
+     * @param normalPerLow the number of NORMAL chats served for each LOW chat when both are waiting
+     */
+    public void start(final AbsSender absSender, final int normalPerLow) {
+        if (normalPerLow <= 0) {
+            throw new IllegalArgumentException("Normal per low ratio must be positive");
+        }
+        lock.lock();
+        try {
+            if (!senders.isEmpty()) {
+                throw new IllegalStateException("Outbox already started");
+            }
+            this.normalPerLow = normalPerLow;
+            for (int i = 1; i <= senderCount; i++) {
+                final Thread sender = new Thread(() -> deliver(absSender), "Outbox Sender " + i);
+                sender.setDaemon(true);
+                senders.add(sender);
+                sender.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Validates the call, writes it to the journal and queues it for delivery as NORMAL priority.
+     * Returns without waiting for the journal commit; the call is sent only after it is on disk.
+     *
+     * @param method the call to send
+     * @throws TelegramApiValidationException if the call is invalid, in which case nothing is written
+     * @throws IOException                    if the call cannot be written to the journal
+     */
+    public void enqueue(final BotApiMethod<?> method) throws TelegramApiValidationException, IOException {
+        enqueue(method, Priority.NORMAL);
+    }
+
+    /**
+     * Validates the call, writes it to the journal and queues it for delivery.
+     * Returns without waiting for the journal commit; the call is sent only after it is on disk,
+     * and a call accepted just before a crash is lost if its commit did not complete.
+     *
+     * @param method   the call to send
+     * @param priority the lane in which the chat of the call waits while it is at the head of the chat's queue
+     * @throws TelegramApiValidationException if the call is invalid, in which case nothing is written
+     * @throws IOException                    if the call cannot be written to the journal
+     */
+    public void enqueue(final BotApiMethod<?> method, final Priority priority) throws TelegramApiValidationException, IOException {
+        method.validate();
+        final JsonNode tree = objectMapper.valueToTree(method);
+        final OutboxJournal.Appended appended = journal.append(method.getClass().getName(), objectMapper.writeValueAsBytes(tree));
+        pendingCount.incrementAndGet();
+        offer(new Pending(appended.sequence(), appended.ticket(), chatOf(tree, appended.sequence()), chatIdOf(tree), priority, method));
+    }
+
+    /**
+     * Returns the number of calls written to the journal and not yet acknowledged.
+     *
+     * @return the pending call count
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Returns the number of calls confirmed by Telegram since the outbox was opened.
+     *
+     * @return the delivered call count
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    /**
+     * Returns the number of calls dropped after a non-retryable error since the outbox was opened.
+     *
+     * @return the dropped call count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Returns the number of journal fsyncs since the outbox was opened.
+     *
+     * @return the commit count
+     */
+    public long getCommitCount() {
+        return journal.getCommitCount();
+    }
+
+    /**
+     * Stops delivery and closes the journal. Undelivered calls remain in the journal and are sent
+     * after the outbox is reopened.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        final List<Thread> threads;
+        lock.lock();
+        try {
+            closed = true;
+            threads = List.copyOf(senders);
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        threads.forEach(Thread::interrupt);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        for (final Thread thread : threads) {
+            try {
+                thread.join(Duration.ofNanos(Math.max(deadline - System.nanoTime(), 1)));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        journal.close();
+    }
+
+    private void deliver(final AbsSender absSender) {
+        while (true) {
+            final Pending pending;
+            try {
+                pending = take();
+            } catch (final InterruptedException e) {
+                break;
+            }
+            if (pending == null) {
+                break;
+            }
+            boolean delivered = false;
+            try {
+                journal.awaitCommitted(pending.ticket());
+                delivered = send(absSender, pending);
+            } catch (final InterruptedException | InterruptedIOException e) {
+                // Closing; the call stays unacknowledged and is sent again after the outbox is reopened.
+                break;
+            } catch (final IOException e) {
+                log.error("Failed to journal {} in outbox: {}", pending.method().getMethod(), e.getMessage());
+            } catch (final Throwable e) {
+                log.error("Failed to send {} from outbox: {}", pending.method().getMethod(), e.getMessage(), e);
+            }
+            journal.ack(pending.sequence());
+            pendingCount.decrementAndGet();
+            if (delivered) {
+                deliveredCount.increment();
+            } else {
+                droppedCount.increment();
+            }
+            release(pending.chat());
+        }
+        log.debug("Outbox sender stopped");
+    }
+
+    private void offer(final Pending pending) {
+        lock.lock();
+        try {
+            final ArrayDeque<Pending> queue = chats.computeIfAbsent(pending.chat(), chat -> new ArrayDeque<>());
+            queue.add(pending);
+            if (queue.size() == 1 && !busyChats.contains(pending.chat())) {
+                lane(pending.priority()).add(pending.chat());
+                ready.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next call of the next waiting chat by priority and marks the chat busy.
+     */
+    private Pending take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (high.isEmpty() && normal.isEmpty() && low.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                ready.await();
+            }
+            final String chat;
+            if (!high.isEmpty()) {
+                chat = high.poll();
+            } else if (low.isEmpty() || !normal.isEmpty() && normalServed < normalPerLow) {
+                normalServed++;
+                chat = normal.poll();
+            } else {
+                normalServed = 0;
+                chat = low.poll();
+            }
+            busyChats.add(chat);
+            return chats.get(chat).poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the chat idle and queues it again if it has more calls.
+     */
+    private void release(final String chat) {
+        lock.lock();
+        try {
+            busyChats.remove(chat);
+            final ArrayDeque<Pending> queue = chats.get(chat);
+            if (queue.isEmpty()) {
+                chats.remove(chat);
+            } else {
+                lane(queue.peek().priority()).add(chat);
+                ready.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ArrayDeque<String> lane(final Priority priority) {
+        return switch (priority) {
+            case HIGH -> high;
+            case NORMAL -> normal;
+            case LOW -> low;
+        };
+    }
+
+    /**
+     * Returns the key that orders calls: the chat ID, or a unique key for calls without a chat.
+     */
+    private static String chatOf(final JsonNode tree, final long sequence) {
+        final JsonNode chatId = tree.get("chat_id");
+        return chatId != null && !chatId.isNull() ? chatId.asText() : "#" + sequence;
+    }
+
+    /**
+     * Returns the numeric chat ID of the call, or 0 for calls without one or addressed by username.
+     */
+    private static long chatIdOf(final JsonNode tree) {
+        return tree.path("chat_id").asLong(0);
+    }
+
+    private boolean send(final AbsSender absSender, final Pending pending) throws InterruptedException {
+        final BotApiMethod<?> method = pending.method();
+        long backOff = INITIAL_BACK_OFF_MILLIS;
+        while (true) {
+            final ApiCallEvent event = new ApiCallEvent();
+            event.begin();
+            try {
+                absSender.execute(method);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = method.getMethod();
+                    event.chatId = pending.chatId();
+                    event.outcome = ApiCallEvent.OK;
+                    event.commit();
+                }
+                return true;
+            } catch (final TelegramApiException e) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = method.getMethod();
+                    event.chatId = pending.chatId();
+                    event.outcome = ApiCallEvent.ERROR;
+                    event.error = e.getMessage();
+                    event.commit();
+                }
+                final long delay = retryDelay(e, backOff);
+                if (delay < 0) {
+                    log.error("Failed to send {} from outbox: {}", method.getMethod(), e.getMessage());
+                    return false;
+                }
+                log.warn("Retrying {} from outbox in {} ms: {}", method.getMethod(), delay, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(delay);
+                backOff = Math.min(backOff * 2, MAX_BACK_OFF_MILLIS);
+            }
+        }
+    }
+
+    private static long retryDelay(final TelegramApiException e, final long backOff) {
+        if (e instanceof TelegramApiValidationException) {
+            return -1;
+        }
+        if (!(e instanceof final TelegramApiRequestException request) || request.getErrorCode() == null) {
+            return backOff;
+        }
+        final int errorCode = request.getErrorCode();
+        if (errorCode == 429) {
+            final Integer retryAfter = request.getParameters() != null ? request.getParameters().getRetryAfter() : null;
+            return retryAfter != null ? TimeUnit.SECONDS.toMillis(retryAfter) : backOff;
+        }
+        return errorCode >= 500 ? backOff : -1;
+    }
+
+}
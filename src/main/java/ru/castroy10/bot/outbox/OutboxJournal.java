@@ -0,0 +1,416 @@
+package ru.castroy10.bot.outbox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Segmented write-ahead journal of outbox entries and acknowledgements.
+ * Records are framed as [type][sequence][length][payload][CRC32], so a record torn by a crash is detected
+ * and ignored on recovery. A single commit thread writes queued records and forces them to disk;
+ * every record queued while the previous fsync was running is covered by the next one.
+ * Batches holding only acknowledgements are written without an fsync, since losing one only causes a resend.
+ * A segment is deleted once it and all older segments hold no unacknowledged entries.
+ */
+final class OutboxJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxJournal.class);
+
+    static final int MAGIC = 0x54474f42;
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES;
+    static final byte ENTRY = 1;
+    static final byte ACK = 2;
+
+    private static final int RECORD_HEADER_BYTES = Byte.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int RECORD_OVERHEAD = RECORD_HEADER_BYTES + Integer.BYTES;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SEGMENT_PREFIX = "outbox-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Pattern SEGMENT_NAME = Pattern.compile(SEGMENT_PREFIX + "\\d+" + Pattern.quote(SEGMENT_SUFFIX));
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final List<Entry> recovered;
+    private final Object lock = new Object();
+    private final Thread committer;
+
+    /* Guarded by lock. */
+    private List<Queued> queued = new ArrayList<>();
+    private long nextSequence;
+    private long appended;
+    private long committed;
+    private boolean closed;
+    private IOException failure;
+
+    /* Confined to the commit thread after construction. */
+    private final TreeMap<Integer, Integer> unackedPerSegment = new TreeMap<>();
+    private final Map<Long, Integer> segmentOfEntry = new HashMap<>();
+    private BufferedOutputStream out;
+    private FileOutputStream file;
+    private int segmentIndex;
+    private long segmentBytes;
+    private volatile long commitCount;
+
+    /**
+     * A journaled outbound call.
+     *
+     * @param sequence the sequence number used to acknowledge the entry
+     * @param type     the class name of the method
+     * @param json     the JSON form of the method
+     */
+    record Entry(long sequence, String type, byte[] json) {
+    }
+
+    /**
+     * An entry queued for the commit thread.
+     *
+     * @param sequence the sequence number used to acknowledge the entry
+     * @param ticket   the commit ticket passed to awaitCommitted
+     */
+    record Appended(long sequence, long ticket) {
+    }
+
+    private record Queued(byte type, long sequence, byte[] record) {
+    }
+
+    /**
+     * Opens the journal, recovering unacknowledged entries and starting a new segment.
+     *
+     * @param directory       the directory for segment files, created if missing
+     * @param maxSegmentBytes the size after which a new segment is started
+     * @throws IOException if the directory cannot be read or the new segment cannot be created
+     */
+    OutboxJournal(final Path directory, final long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.recovered = recover();
+        deleteAckedSegments();
+        openNextSegment();
+        this.committer = new Thread(this::commitLoop, "Outbox Commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Returns the entries that were not acknowledged before the journal was last closed, in sequence order.
+     *
+     * @return the recovered entries
+     */
+    List<Entry> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Appends an entry without waiting for it to reach the disk.
+     * The entry is durable once awaitCommitted returns for its ticket.
+     *
+     * @param type the class name of the method
+     * @param json the JSON form of the method
+     * @return the sequence number and commit ticket of the entry
+     * @throws IOException if the journal is closed or failed
+     */
+    Appended append(final String type, final byte[] json) throws IOException {
+        final byte[] name = type.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer payload = ByteBuffer.allocate(Short.BYTES + name.length + json.length);
+        payload.putShort((short) name.length).put(name).put(json);
+        synchronized (lock) {
+            checkOpen();
+            final long sequence = nextSequence++;
+            return new Appended(sequence, enqueue(ENTRY, sequence, payload.array()));
+        }
+    }
+
+    /**
+     * Appends an acknowledgement without waiting for it to reach the disk.
+     * A lost acknowledgement only causes the entry to be sent again after a restart.
+     *
+     * @param sequence the sequence number of the delivered entry
+     */
+    void ack(final long sequence) {
+        synchronized (lock) {
+            if (!closed && failure == null) {
+                enqueue(ACK, sequence, new byte[0]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of fsyncs performed by the commit thread.
+     *
+     * @return the commit count
+     */
+    long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Writes the queued records, stops the commit thread and closes the current segment.
+     *
+     * @throws IOException if the final commit failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing outbox journal");
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private long enqueue(final byte type, final long sequence, final byte[] payload) {
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payload.length);
+        record.put(type).putLong(sequence).putInt(payload.length).put(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        queued.add(new Queued(type, sequence, record.array()));
+        lock.notifyAll();
+        return ++appended;
+    }
+
+    /**
+     * Waits until every record up to the ticket is on disk. Returns at once for ticket 0.
+     *
+     * @param ticket the commit ticket of an appended entry
+     * @throws IOException if the journal failed or the caller is interrupted
+     */
+    void awaitCommitted(final long ticket) throws IOException {
+        synchronized (lock) {
+            while (committed < ticket && failure == null) {
+                try {
+                    lock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for outbox commit");
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Outbox journal failed", failure);
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Outbox journal is closed");
+        }
+        if (failure != null) {
+            throw new IOException("Outbox journal failed", failure);
+        }
+    }
+
+    private void commitLoop() {
+        try {
+            while (true) {
+                final List<Queued> batch;
+                final long target;
+                synchronized (lock) {
+                    while (queued.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (queued.isEmpty()) {
+                        break;
+                    }
+                    batch = queued;
+                    queued = new ArrayList<>();
+                    target = appended;
+                }
+                boolean hasEntries = false;
+                for (final Queued record : batch) {
+                    write(record);
+                    hasEntries |= record.type() == ENTRY;
+                }
+                out.flush();
+                if (hasEntries) {
+                    file.getChannel().force(false);
+                    commitCount++;
+                }
+                deleteAckedSegments();
+                synchronized (lock) {
+                    committed = target;
+                    lock.notifyAll();
+                }
+            }
+        } catch (final IOException e) {
+            log.error("Failed to write outbox journal: {}", e.getMessage());
+            synchronized (lock) {
+                failure = e;
+                lock.notifyAll();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (final IOException e) {
+                log.warn("Failed to close outbox segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(final Queued record) throws IOException {
+        if (segmentBytes > HEADER_BYTES && segmentBytes + record.record().length > maxSegmentBytes) {
+            out.flush();
+            file.getChannel().force(false);
+            out.close();
+            openNextSegment();
+        }
+        out.write(record.record());
+        segmentBytes += record.record().length;
+        track(record.type(), record.sequence(), segmentIndex);
+    }
+
+    private void track(final byte type, final long sequence, final int segment) {
+        if (type == ENTRY) {
+            segmentOfEntry.put(sequence, segment);
+            unackedPerSegment.merge(segment, 1, Integer::sum);
+        } else {
+            final Integer entrySegment = segmentOfEntry.remove(sequence);
+            if (entrySegment != null) {
+                unackedPerSegment.merge(entrySegment, -1, Integer::sum);
+            }
+        }
+    }
+
+    private void deleteAckedSegments() throws IOException {
+        final Iterator<Map.Entry<Integer, Integer>> segments = unackedPerSegment.entrySet().iterator();
+        while (segments.hasNext()) {
+            final Map.Entry<Integer, Integer> segment = segments.next();
+            if (segment.getValue() > 0 || segment.getKey() == segmentIndex) {
+                return;
+            }
+            Files.deleteIfExists(directory.resolve(segmentName(segment.getKey())));
+            segments.remove();
+        }
+    }
+
+    private List<Entry> recover() throws IOException {
+        final Map<Long, Entry> pending = new TreeMap<>();
+        for (final Path segment : segments()) {
+            final int index = segmentIndex(segment);
+            unackedPerSegment.putIfAbsent(index, 0);
+            segmentIndex = Math.max(segmentIndex, index);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), BUFFER_SIZE))) {
+                if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                    throw new IOException("Invalid outbox segment header: " + segment);
+                }
+                readRecords(in, segment, index, pending);
+            } catch (final EOFException e) {
+                log.warn("Outbox segment {} has a truncated header", segment);
+            }
+        }
+        return List.copyOf(pending.values());
+    }
+
+    private void readRecords(final DataInputStream in, final Path segment, final int index, final Map<Long, Entry> pending) throws IOException {
+        final byte[] header = new byte[RECORD_HEADER_BYTES];
+        while (true) {
+            try {
+                in.readFully(header);
+            } catch (final EOFException e) {
+                return;
+            }
+            final ByteBuffer fields = ByteBuffer.wrap(header);
+            final byte type = fields.get();
+            final long sequence = fields.getLong();
+            final int length = fields.getInt();
+            if (type != ENTRY && type != ACK || length < 0 || length > MAX_PAYLOAD_BYTES) {
+                log.warn("Outbox segment {} has a corrupt record, ignoring the rest of the segment", segment);
+                return;
+            }
+            final byte[] payload = new byte[length];
+            final int checksum;
+            try {
+                in.readFully(payload);
+                checksum = in.readInt();
+            } catch (final EOFException e) {
+                log.warn("Outbox segment {} ends with a truncated record", segment);
+                return;
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(header);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Outbox segment {} has a record with a bad checksum, ignoring the rest of the segment", segment);
+                return;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            track(type, sequence, index);
+            if (type == ENTRY) {
+                final ByteBuffer body = ByteBuffer.wrap(payload);
+                final byte[] name = new byte[body.getShort()];
+                body.get(name);
+                final byte[] json = new byte[body.remaining()];
+                body.get(json);
+                pending.put(sequence, new Entry(sequence, new String(name, StandardCharsets.UTF_8), json));
+            } else {
+                pending.remove(sequence);
+            }
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentIndex++;
+        file = new FileOutputStream(directory.resolve(segmentName(segmentIndex)).toFile());
+        out = new BufferedOutputStream(file, BUFFER_SIZE);
+        out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION).array());
+        segmentBytes = HEADER_BYTES;
+        unackedPerSegment.putIfAbsent(segmentIndex, 0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                        .sorted((left, right) -> Integer.compare(segmentIndex(left), segmentIndex(right)))
+                        .toList();
+        }
+    }
+
+    private static String segmentName(final int index) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static int segmentIndex(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+}
@@ -0,0 +1,146 @@
+package ru.castroy10.bot.record;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Reader of update logs written by UpdateRecorder.
+ * Reads segments in order and stops cleanly at a record truncated by a crash.
+ * A record with an invalid length ends its segment, and reading continues with the next one.
+ */
+public class UpdateLog implements Closeable {
+
+    static final int MAGIC = 0x54475550;
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES;
+    static final int RECORD_OVERHEAD = Long.BYTES + Integer.BYTES;
+    static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(UpdateLog.class);
+
+    private static final String SEGMENT_PREFIX = "updates-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Iterator<Path> segments;
+    private DataInputStream in;
+    private Path segment;
+
+    /**
+     * Opens the update log stored in the directory.
+     *
+     * @param directory the directory containing segment files
+     * @throws IOException if the directory cannot be listed
+     */
+    public UpdateLog(final Path directory) throws IOException {
+        this.segments = segments(directory).iterator();
+    }
+
+    /**
+     * Reads the next recorded update.
+     *
+     * @return the next record, or null when the log is exhausted
+     * @throws IOException if a segment cannot be read or has an invalid header
+     */
+    public RecordedUpdate next() throws IOException {
+        while (true) {
+            if (in == null && !openNextSegment()) {
+                return null;
+            }
+            try {
+                final long recordedAt = in.readLong();
+                final int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    log.warn("Update log segment {} has a corrupt record, ignoring the rest of the segment", segment);
+                    close();
+                    continue;
+                }
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                return new RecordedUpdate(recordedAt, objectMapper.readValue(payload, Update.class));
+            } catch (final EOFException e) {
+                in.close();
+                in = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+
+    static List<Path> segments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(UpdateLog::isSegment)
+                        .sorted((a, b) -> Integer.compare(segmentIndex(a), segmentIndex(b)))
+                        .toList();
+        }
+    }
+
+    static String segmentName(final int index) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    static int segmentIndex(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static boolean isSegment(final Path path) {
+        final String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return false;
+        }
+        final String index = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        return !index.isEmpty() && index.chars().allMatch(Character::isDigit);
+    }
+
+    private boolean openNextSegment() throws IOException {
+        if (!segments.hasNext()) {
+            return false;
+        }
+        segment = segments.next();
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024));
+        try {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                close();
+                throw new IOException("Invalid update log segment: " + segment);
+            }
+        } catch (final EOFException e) {
+            in.close();
+            in = null;
+            return openNextSegment();
+        }
+        return true;
+    }
+
+    /**
+     * An update read from the log.
+     *
+     * @param recordedAt the time the update was received, in epoch milliseconds
+     * @param update     the recorded update
+     */
+    public record RecordedUpdate(long recordedAt, Update update) {
+    }
+
+}
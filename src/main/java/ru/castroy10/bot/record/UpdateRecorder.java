@@ -0,0 +1,160 @@
+package ru.castroy10.bot.record;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Append-only recorder of incoming updates.
+ * Updates are written to numbered segment files in a directory. Each record holds the receive time
+ * and the JSON form of the update, framed by its length. A new segment is started when the current one
+ * exceeds the configured size. Writes are buffered, and a background thread flushes them once per second,
+ * so records reach the file even when no further updates arrive.
+ */
+public class UpdateRecorder implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(UpdateRecorder.class);
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Thread flusher;
+    private DataOutputStream out;
+    private long segmentBytes;
+    private int segmentIndex;
+    private boolean dirty;
+    private boolean closed;
+
+    /**
+     * Constructs a new UpdateRecorder instance with 64 MiB segments.
+     *
+     * @param directory the directory for segment files, created if missing
+     * @throws IOException if the directory or the first segment cannot be created
+     */
+    public UpdateRecorder(final Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Constructs a new UpdateRecorder instance.
+     *
+     * @param directory       the directory for segment files, created if missing
+     * @param maxSegmentBytes the size after which a new segment is started
+     * @throws IOException if the directory or the first segment cannot be created
+     */
+    public UpdateRecorder(final Path directory, final long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxSegmentBytes = maxSegmentBytes;
+        final List<Path> existing = UpdateLog.segments(directory);
+        this.segmentIndex = existing.isEmpty() ? 0 : UpdateLog.segmentIndex(existing.getLast());
+        openNextSegment();
+        this.flusher = new Thread(this::flushPeriodically, "Update Recorder Flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Appends the update to the log.
+     * Failures are logged and do not interrupt update processing.
+     *
+     * @param update the update to record
+     */
+    public synchronized void record(final Update update) {
+        if (closed) {
+            return;
+        }
+        try {
+            final byte[] payload = objectMapper.writeValueAsBytes(update);
+            if (payload.length > UpdateLog.MAX_RECORD_BYTES) {
+                log.error("Failed to record update {}: {} bytes exceed the record limit", update.getUpdateId(), payload.length);
+                return;
+            }
+            if (segmentBytes > UpdateLog.HEADER_BYTES && segmentBytes + UpdateLog.RECORD_OVERHEAD + payload.length > maxSegmentBytes) {
+                out.close();
+                openNextSegment();
+            }
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(payload.length);
+            out.write(payload);
+            segmentBytes += UpdateLog.RECORD_OVERHEAD + payload.length;
+            dirty = true;
+        } catch (final IOException e) {
+            log.error("Failed to record update {}: {}", update.getUpdateId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes buffered records to the current segment.
+     *
+     * @throws IOException if the flush fails
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Flushes and closes the current segment. Further records are ignored.
+     *
+     * @throws IOException if closing the segment fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            flusher.interrupt();
+            out.close();
+        }
+    }
+
+    private void flushPeriodically() {
+        try {
+            while (true) {
+                TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL_MILLIS);
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    if (dirty) {
+                        try {
+                            flush();
+                        } catch (final IOException e) {
+                            log.error("Failed to flush update log: {}", e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentIndex++;
+        final Path segment = directory.resolve(UpdateLog.segmentName(segmentIndex));
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), BUFFER_SIZE));
+        out.writeInt(UpdateLog.MAGIC);
+        out.writeByte(UpdateLog.VERSION);
+        segmentBytes = UpdateLog.HEADER_BYTES;
+    }
+
+}
@@ -0,0 +1,114 @@
+package ru.castroy10.bot.record;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.telegram.telegrambots.meta.generics.LongPollingBot;
+
+/**
+ * Replays a recorded update log through a bot's onUpdateReceived.
+ * The bot should have its outbound calls stubbed (for example a Mockito spy of RouterBot),
+ * so that replaying production traffic does not reach Telegram.
+ */
+public class UpdateReplayer {
+
+    /**
+     * Pacing of the replay.
+     */
+    public enum Mode {
+        /**
+         * Preserves the original gaps between updates.
+         */
+        ORIGINAL_PACE,
+        /**
+         * Delivers updates back to back as fast as the bot processes them.
+         */
+        AS_FAST_AS_POSSIBLE
+    }
+
+    private final LongPollingBot bot;
+
+    /**
+     * Constructs a new UpdateReplayer instance.
+     *
+     * @param bot the bot receiving replayed updates
+     */
+    public UpdateReplayer(final LongPollingBot bot) {
+        this.bot = bot;
+    }
+
+    /**
+     * Replays every update stored in the directory, in recorded order.
+     *
+     * @param directory the directory containing segment files
+     * @param mode      the pacing of the replay
+     * @return the throughput and handler latency of the replay
+     * @throws IOException          if the log cannot be read
+     * @throws InterruptedException if interrupted while waiting to preserve the original pace
+     */
+    public ReplayReport replay(final Path directory, final Mode mode) throws IOException, InterruptedException {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long firstRecordedAt = -1;
+        final long start = System.nanoTime();
+
+        try (UpdateLog log = new UpdateLog(directory)) {
+            UpdateLog.RecordedUpdate recorded;
+            while ((recorded = log.next()) != null) {
+                if (mode == Mode.ORIGINAL_PACE) {
+                    if (firstRecordedAt < 0) {
+                        firstRecordedAt = recorded.recordedAt();
+                    }
+                    final long dueNanos = TimeUnit.MILLISECONDS.toNanos(recorded.recordedAt() - firstRecordedAt);
+                    final long waitNanos = dueNanos - (System.nanoTime() - start);
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                }
+
+                final long before = System.nanoTime();
+                bot.onUpdateReceived(recorded.update());
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - before;
+            }
+        }
+        return ReplayReport.of(Arrays.copyOf(latencies, count), System.nanoTime() - start);
+    }
+
+    /**
+     * Summary of a replay run.
+     *
+     * @param updates          the number of replayed updates
+     * @param elapsed          the wall-clock duration of the replay
+     * @param updatesPerSecond the replay throughput
+     * @param p50              the median handler latency
+     * @param p90              the 90th percentile handler latency
+     * @param p99              the 99th percentile handler latency
+     * @param max              the maximum handler latency
+     */
+    public record ReplayReport(int updates, Duration elapsed, double updatesPerSecond,
+                               Duration p50, Duration p90, Duration p99, Duration max) {
+
+        static ReplayReport of(final long[] latencies, final long elapsedNanos) {
+            Arrays.sort(latencies);
+            final double seconds = elapsedNanos / 1_000_000_000.0;
+            return new ReplayReport(latencies.length, Duration.ofNanos(elapsedNanos),
+                                    seconds > 0 ? latencies.length / seconds : 0.0,
+                                    percentile(latencies, 0.50), percentile(latencies, 0.90),
+                                    percentile(latencies, 0.99), percentile(latencies, 1.0));
+        }
+
+        private static Duration percentile(final long[] sorted, final double quantile) {
+            if (sorted.length == 0) {
+                return Duration.ZERO;
+            }
+            final int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return Duration.ofNanos(sorted[Math.max(0, index)]);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package ru.castroy10.bot.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.telegram.telegrambots.Constants;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.facilities.TelegramHttpClientBuilder;
+
+/**
+ * Transport based on the Apache HTTP client configured by telegrambots from DefaultBotOptions.
+ * This is the transport used when no other is configured. Closing it aborts requests in flight.
+ */
+public class ApacheBotTransport implements BotTransport {
+
+    private final DefaultBotOptions options;
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig requestConfig;
+    private final Set<HttpPost> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new ApacheBotTransport instance.
+     *
+     * @param options the bot options providing proxy, request config and HTTP context
+     */
+    public ApacheBotTransport(final DefaultBotOptions options) {
+        this.options = options;
+        this.httpClient = TelegramHttpClientBuilder.build(options);
+        this.requestConfig = options.getRequestConfig() != null
+                ? options.getRequestConfig()
+                : RequestConfig.custom()
+                               .setSocketTimeout(Constants.SOCKET_TIMEOUT)
+                               .setConnectTimeout(Constants.SOCKET_TIMEOUT)
+                               .setConnectionRequestTimeout(Constants.SOCKET_TIMEOUT)
+                               .build();
+    }
+
+    @Override
+    public byte[] post(final String url, final byte[] body, final Duration timeout) throws IOException {
+        if (closed) {
+            throw new IOException("Transport is closed");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted before sending request");
+        }
+        final HttpPost post = new HttpPost(url);
+        post.addHeader("charset", StandardCharsets.UTF_8.name());
+        post.setConfig(timeout == null ? requestConfig : RequestConfig.copy(requestConfig)
+                                                                      .setSocketTimeout((int) timeout.toMillis())
+                                                                      .build());
+        post.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        inFlight.add(post);
+        try (CloseableHttpResponse response = httpClient.execute(post, options.getHttpContext())) {
+            return EntityUtils.toByteArray(response.getEntity());
+        } finally {
+            inFlight.remove(post);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        inFlight.forEach(HttpPost::abort);
+        httpClient.close();
+    }
+
+}
@@ -0,0 +1,27 @@
+package ru.castroy10.bot.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * HTTP transport for Bot API requests.
+ * Used by RouterBot for JSON API calls and by RouterBotSession for getUpdates.
+ * Implementations must be thread-safe and should abort a request when the calling thread is interrupted
+ * or the transport is closed.
+ */
+public interface BotTransport extends Closeable {
+
+    /**
+     * Sends a JSON POST request and returns the response body.
+     * Error responses are returned like successful ones, because the Bot API describes errors in the body.
+     *
+     * @param url     the full method URL, including the bot token
+     * @param body    the JSON request body
+     * @param timeout the request timeout, or null to use the transport default
+     * @return the response body
+     * @throws IOException if the request fails, times out or is interrupted
+     */
+    byte[] post(final String url, final byte[] body, final Duration timeout) throws IOException;
+
+}
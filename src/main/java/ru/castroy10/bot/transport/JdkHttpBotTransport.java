@@ -0,0 +1,121 @@
+package ru.castroy10.bot.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Transport based on java.net.http.HttpClient.
+ * With HTTP/2, concurrent calls to api.telegram.org are multiplexed over a pooled connection negotiated
+ * with ALPN instead of opening a connection per in-flight request; plain HTTP endpoints fall back to
+ * pooled HTTP/1.1 keep-alive connections. The number of requests in flight is capped by a semaphore.
+ * <p>
+ * Per transport, only the HTTP version, the timeouts and the in-flight limit can be set. HttpClient has no
+ * per-client pool settings: the HTTP/1.1 pool size and idle keep-alive are read once from the JVM-wide
+ * {@code jdk.httpclient.connectionPoolSize}, {@code jdk.httpclient.keepalive.timeout} and
+ * {@code jdk.httpclient.keepalive.timeout.h2} system properties, so they apply to every HttpClient in the process
+ * and must be set before the first one is created.
+ * <p>
+ * HTTP/2 is only negotiated over TLS. The tests and TransportBenchmark run against a plain HTTP/1.1 stub,
+ * so multiplexing is not measured there; getNegotiatedVersion() shows which version the server actually chose.
+ */
+public class JdkHttpBotTransport implements BotTransport {
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(75);
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 100;
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Semaphore permits;
+    private volatile HttpClient.Version negotiatedVersion;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new JdkHttpBotTransport instance with HTTP/2, a 10 second connect timeout,
+     * a 75 second request timeout and at most 100 requests in flight.
+     */
+    public JdkHttpBotTransport() {
+        this(HttpClient.Version.HTTP_2, DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Constructs a new JdkHttpBotTransport instance.
+     *
+     * @param version               the preferred HTTP version
+     * @param connectTimeout        the timeout for establishing a connection
+     * @param requestTimeout        the default timeout for a request and its response
+     * @param maxConcurrentRequests the maximum number of requests in flight; further callers wait
+     */
+    public JdkHttpBotTransport(final HttpClient.Version version, final Duration connectTimeout,
+                               final Duration requestTimeout, final int maxConcurrentRequests) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("Max concurrent requests must be positive");
+        }
+        this.httpClient = HttpClient.newBuilder()
+                                    .version(version)
+                                    .connectTimeout(connectTimeout)
+                                    .followRedirects(HttpClient.Redirect.NEVER)
+                                    .build();
+        this.requestTimeout = requestTimeout;
+        this.permits = new Semaphore(maxConcurrentRequests);
+    }
+
+    @Override
+    public byte[] post(final String url, final byte[] body, final Duration timeout) throws IOException {
+        if (closed) {
+            throw new IOException("Transport is closed");
+        }
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                                               .timeout(timeout != null ? timeout : requestTimeout)
+                                               .header("Content-Type", "application/json")
+                                               .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                                               .build();
+        try {
+            permits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request slot");
+        }
+        final CompletableFuture<HttpResponse<byte[]>> response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            final HttpResponse<byte[]> result = response.get();
+            negotiatedVersion = result.version();
+            return result.body();
+        } catch (final InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof final IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Returns the HTTP version of the last response, e.g. to confirm that api.telegram.org is reached over HTTP/2.
+     *
+     * @return the negotiated version, or null if no response was received yet
+     */
+    public HttpClient.Version getNegotiatedVersion() {
+        return negotiatedVersion;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        httpClient.shutdownNow();
+    }
+
+}
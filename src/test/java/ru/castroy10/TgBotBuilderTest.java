@@ -4,9 +4,14 @@ import java.lang.reflect.Field;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.telegram.telegrambots.bots.DefaultAbsSender;
 import ru.castroy10.bot.RouterBot;
+import ru.castroy10.bot.RouterBotOptions;
+import ru.castroy10.bot.outbox.Outbox;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 
 class TgBotBuilderTest {
 
@@ -47,4 +52,65 @@ class TgBotBuilderTest {
         );
     }
 
+    @Test
+    @DisplayName("Error when the getUpdates limit is out of range")
+    void testBuildFailWithInvalidUpdatesLimit() {
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                TgBotBuilder.create()
+                            .token("test_token")
+                            .botName("test_bot")
+                            .updatesLimit(101)
+                            .build()
+        );
+    }
+
+    @Test
+    @DisplayName("Error when pipelined polling has no parser threads or prefetch buffer")
+    void testBuildFailWithInvalidPipelinedPolling() {
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                TgBotBuilder.create()
+                            .token("test_token")
+                            .botName("test_bot")
+                            .pipelinedPolling(0, 4)
+                            .build()
+        );
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                TgBotBuilder.create()
+                            .token("test_token")
+                            .botName("test_bot")
+                            .pipelinedPolling(2, 0)
+                            .build()
+        );
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RouterBotOptions().setParserThreads(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RouterBotOptions().setPrefetchBatches(0));
+    }
+
+    @Test
+    @DisplayName("Building does not start the outbox, so a builder can build twice")
+    void testBuildDoesNotStartOutbox(@TempDir final Path directory) throws Exception {
+        try (Outbox outbox = new Outbox(directory)) {
+            final TgBotBuilder builder = TgBotBuilder.create()
+                                                     .token("test_token")
+                                                     .botName("test_bot")
+                                                     .outbox(outbox);
+            builder.build();
+            final RouterBot bot = builder.build();
+
+            bot.onRegister();
+            Assertions.assertThrows(IllegalStateException.class, bot::onRegister);
+        }
+    }
+
+    @Test
+    @DisplayName("Allowed update types are passed to the bot options")
+    void testAllowedUpdates() {
+        final RouterBot bot = TgBotBuilder.create()
+                                          .token("test_token")
+                                          .botName("test_bot")
+                                          .allowedUpdates(List.of("message", "chat_member"))
+                                          .build();
+
+        Assertions.assertEquals(List.of("message", "chat_member"), bot.getOptions().getAllowedUpdates());
+    }
+
 }
@@ -1,16 +1,30 @@
 package ru.castroy10.bot;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatAdministrators;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberOwner;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class AbstractBotLogicTest {
 
@@ -51,4 +65,41 @@ class AbstractBotLogicTest {
         assertEquals(text, capturedMessage.getText());
     }
 
+    @Test
+    @DisplayName("Administrator checks share one cached getChatAdministrators call")
+    void testChatAdministratorsAreCached() throws TelegramApiException {
+        final ChatMemberOwner owner = new ChatMemberOwner();
+        owner.setUser(new User(7L, "Owner", false));
+        when(routerBot.getChatInfoCache()).thenReturn(new ChatInfoCache(10, Duration.ofMinutes(1)));
+        when(routerBot.execute(any(GetChatAdministrators.class))).thenReturn(new ArrayList<>(List.of(owner)));
+
+        assertTrue(botLogic.isChatAdministrator(7L));
+        assertFalse(botLogic.isChatAdministrator(8L));
+
+        verify(routerBot, times(1)).execute(any(GetChatAdministrators.class));
+    }
+
+    @Test
+    @DisplayName("Cached inline answers carry the next offset and are not personal")
+    void testCachedInlineAnswerPages() throws TelegramApiException {
+        final InlineQueryCache cache = new InlineQueryCache(10, Duration.ofMinutes(2));
+        final InlineQuery query = new InlineQuery();
+        query.setId("q1");
+        query.setQuery("news");
+        query.setOffset("");
+        final InlineQueryResultArticle article = new InlineQueryResultArticle();
+        article.setId("a1");
+
+        botLogic.answerInlineQuery(query, cache, q -> new InlineQueryPage(List.of(article), "20"));
+        botLogic.answerInlineQuery(query, cache, q -> InlineQueryPage.last(List.of()));
+
+        final ArgumentCaptor<AnswerInlineQuery> argument = ArgumentCaptor.forClass(AnswerInlineQuery.class);
+        verify(routerBot, times(2)).execute(argument.capture());
+        final AnswerInlineQuery answer = argument.getAllValues().get(1);
+        assertEquals(List.of(article), answer.getResults());
+        assertEquals("20", answer.getNextOffset());
+        assertEquals(120, answer.getCacheTime());
+        assertFalse(answer.getIsPersonal());
+    }
+
 }
@@ -0,0 +1,86 @@
+package ru.castroy10.bot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberMember;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatInfoCacheTest {
+
+    private static final String CHAT_MEMBER = """
+            {"update_id":1,"chat_member":{"chat":{"id":100,"type":"group"},"from":{"id":7,"is_bot":false,"first_name":"A"},"date":0,
+             "old_chat_member":{"status":"member","user":{"id":8,"is_bot":false,"first_name":"B"}},
+             "new_chat_member":{"status":"left","user":{"id":8,"is_bot":false,"first_name":"B"}}}}
+            """;
+    private static final String MY_CHAT_MEMBER = CHAT_MEMBER.replace("\"chat_member\"", "\"my_chat_member\"");
+
+    private final ChatInfoCache cache = new ChatInfoCache(10, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Repeated lookups are served from the cache and counted")
+    void testLookupsAreCached() {
+        assertEquals(100L, chat(100L).getId());
+        assertEquals(100L, chat(100L).getId());
+        member(100L, 8L);
+        member(100L, 8L);
+        member(100L, 9L);
+
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.4, cache.getHitRatio());
+    }
+
+    @Test
+    @DisplayName("chat_member update drops the member and administrators, my_chat_member drops the whole chat")
+    void testMembershipUpdatesInvalidate() throws Exception {
+        chat(100L);
+        member(100L, 8L);
+        member(100L, 9L);
+        administrators(100L);
+        final ObjectMapper objectMapper = new ObjectMapper();
+
+        cache.onUpdate(objectMapper.readValue(CHAT_MEMBER, Update.class), 100L);
+        chat(100L);
+        member(100L, 8L);
+        member(100L, 9L);
+        administrators(100L);
+        assertEquals(6, loads.get());
+
+        cache.onUpdate(objectMapper.readValue(MY_CHAT_MEMBER, Update.class), 100L);
+        chat(100L);
+        member(100L, 9L);
+        assertEquals(8, loads.get());
+    }
+
+    private Chat chat(final Long chatId) {
+        return cache.getChat(chatId, () -> {
+            loads.incrementAndGet();
+            return new Chat(chatId, "group");
+        });
+    }
+
+    private ChatMember member(final Long chatId, final Long userId) {
+        return cache.getChatMember(chatId, userId, () -> {
+            loads.incrementAndGet();
+            return new ChatMemberMember();
+        });
+    }
+
+    private List<ChatMember> administrators(final Long chatId) {
+        return cache.getChatAdministrators(chatId, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+    }
+
+}
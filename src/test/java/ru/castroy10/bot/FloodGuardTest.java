@@ -0,0 +1,116 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloodGuardTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    @DisplayName("Drop updates over the per-user limit")
+    void testDropsOverLimit() {
+        final FloodGuard guard = new FloodGuard(3, Duration.ofSeconds(10), 100, now::get);
+
+        assertTrue(guard.intercept(messageFrom(1L), 1L));
+        assertTrue(guard.intercept(messageFrom(1L), 1L));
+        assertTrue(guard.intercept(messageFrom(1L), 1L));
+        assertFalse(guard.intercept(messageFrom(1L), 1L));
+        assertTrue(guard.intercept(messageFrom(2L), 2L));
+        assertEquals(1, guard.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("Accept updates again once the window slides")
+    void testWindowSlides() {
+        final FloodGuard guard = new FloodGuard(2, Duration.ofSeconds(10), 100, now::get);
+        guard.intercept(messageFrom(1L), 1L);
+        guard.intercept(messageFrom(1L), 1L);
+        assertFalse(guard.intercept(messageFrom(1L), 1L));
+
+        now.addAndGet(Duration.ofSeconds(15).toNanos());
+        assertTrue(guard.intercept(messageFrom(1L), 1L));
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(guard.intercept(messageFrom(1L), 1L));
+    }
+
+    @Test
+    @DisplayName("Evict idle users to keep memory bounded")
+    void testEvictsIdleUsers() {
+        final FloodGuard guard = new FloodGuard(1, Duration.ofSeconds(1), 2, now::get);
+        guard.intercept(messageFrom(1L), 1L);
+        guard.intercept(messageFrom(2L), 2L);
+        assertEquals(2, guard.getTrackedUsers());
+
+        now.addAndGet(Duration.ofSeconds(3).toNanos());
+        guard.intercept(messageFrom(3L), 3L);
+        assertEquals(1, guard.getTrackedUsers());
+        assertEquals(0, guard.getEvictedCount());
+    }
+
+    @Test
+    @DisplayName("Evict the least recently seen user when the tracking limit is reached")
+    void testEvictsLeastRecentlySeenWhenFull() {
+        final FloodGuard guard = new FloodGuard(1, Duration.ofSeconds(10), 2, now::get);
+        assertTrue(guard.intercept(messageFrom(1L), 1L));
+        assertTrue(guard.intercept(messageFrom(2L), 2L));
+        assertFalse(guard.intercept(messageFrom(1L), 1L));
+
+        assertTrue(guard.intercept(messageFrom(3L), 3L));
+        assertFalse(guard.intercept(messageFrom(3L), 3L));
+        assertFalse(guard.intercept(messageFrom(1L), 1L));
+        assertEquals(2, guard.getTrackedUsers());
+        assertEquals(1, guard.getEvictedCount());
+    }
+
+    @Test
+    @DisplayName("Count messages sent on behalf of a chat per sender chat, not per shared service account")
+    void testKeysOnSenderChat() {
+        final FloodGuard guard = new FloodGuard(1, Duration.ofSeconds(10), 100, now::get);
+        final long anonymousAdmin = 1087968824L;
+
+        assertTrue(guard.intercept(messageFromChat(anonymousAdmin, -100L), -100L));
+        assertTrue(guard.intercept(messageFromChat(anonymousAdmin, -200L), -200L));
+        assertFalse(guard.intercept(messageFromChat(anonymousAdmin, -100L), -100L));
+
+        final Update edited = messageFromChat(anonymousAdmin, -300L);
+        edited.setEditedMessage(edited.getMessage());
+        edited.setMessage(null);
+        assertTrue(guard.intercept(edited, -300L));
+        assertFalse(guard.intercept(edited, -300L));
+        assertEquals(3, guard.getTrackedUsers());
+    }
+
+    private static Update messageFromChat(final Long userId, final Long senderChatId) {
+        final Update update = messageFrom(userId);
+        final Chat senderChat = new Chat();
+        senderChat.setId(senderChatId);
+        update.getMessage().setSenderChat(senderChat);
+        return update;
+    }
+
+    private static Update messageFrom(final Long userId) {
+        final User user = new User();
+        user.setId(userId);
+        final Chat chat = new Chat();
+        chat.setId(userId);
+        final Message message = new Message();
+        message.setChat(chat);
+        message.setFrom(user);
+        final Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+
+}
@@ -0,0 +1,137 @@
+package ru.castroy10.bot;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InlineQueryCacheTest {
+
+    @Test
+    @DisplayName("Normalized query text shares one cache entry")
+    void testNormalizedQueryHitsCache() {
+        final InlineQueryCache cache = new InlineQueryCache(10, Duration.ofMinutes(1));
+        final AtomicInteger loads = new AtomicInteger();
+        final List<InlineQueryResult> results = List.of(new InlineQueryResultArticle());
+
+        final InlineQueryPage first = cache.get("  News ", "", () -> {
+            loads.incrementAndGet();
+            return new InlineQueryPage(results, "10");
+        });
+        final InlineQueryPage second = cache.get("news", null, () -> {
+            loads.incrementAndGet();
+            return InlineQueryPage.last(List.of());
+        });
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    @DisplayName("Expired entries are loaded again")
+    void testExpiredEntryReloads() {
+        final AtomicLong now = new AtomicLong();
+        final TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofSeconds(5), now::get);
+
+        assertEquals("a", cache.get("key", () -> "a"));
+        now.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertEquals("a", cache.get("key", () -> "b"));
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals("c", cache.get("key", () -> "c"));
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted when full")
+    void testLruEviction() {
+        final TtlCache<String, String> cache = new TtlCache<>(2, Duration.ofMinutes(1));
+        cache.get("a", () -> "a");
+        cache.get("b", () -> "b");
+        cache.get("a", () -> "unused");
+        cache.get("c", () -> "c");
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get("a", () -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", () -> "reloaded"));
+    }
+
+    @Test
+    @DisplayName("Concurrent identical lookups invoke the loader once")
+    void testSingleFlight() throws Exception {
+        final TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loaderStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<String> leader = executor.submit(() -> cache.get("key", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(release);
+                return "value";
+            }));
+            loaderStarted.await(5, TimeUnit.SECONDS);
+            final List<Future<String>> followers = List.of(
+                    executor.submit(() -> cache.get("key", () -> "other" + loads.incrementAndGet())),
+                    executor.submit(() -> cache.get("key", () -> "other" + loads.incrementAndGet())));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+            for (final Future<String> follower : followers) {
+                assertEquals("value", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Load that was running when its key was invalidated is not stored")
+    void testInvalidateDuringLoad() throws Exception {
+        final TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+        final CountDownLatch loaderStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> stale = executor.submit(() -> cache.get("key", () -> {
+                loaderStarted.countDown();
+                await(release);
+                return "stale";
+            }));
+            loaderStarted.await(5, TimeUnit.SECONDS);
+            cache.invalidate("key");
+            release.countDown();
+
+            assertEquals("stale", stale.get(5, TimeUnit.SECONDS));
+            assertEquals(0, cache.size());
+            assertEquals("fresh", cache.get("key", () -> "fresh"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
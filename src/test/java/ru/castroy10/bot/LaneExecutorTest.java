@@ -0,0 +1,144 @@
+package ru.castroy10.bot;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LaneExecutorTest {
+
+    private final List<String> order = new CopyOnWriteArrayList<>();
+    private LaneExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("HIGH tasks jump ahead of queued NORMAL and LOW tasks")
+    void testHighRunsFirst() throws Exception {
+        executor = new LaneExecutor("test", 2);
+        final CountDownLatch gate = block();
+        submit(Priority.LOW, "l1");
+        submit(Priority.NORMAL, "n1");
+        submit(Priority.HIGH, "h1");
+        submit(Priority.HIGH, "h2");
+        gate.countDown();
+
+        assertTrue(executor.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(List.of("h1", "h2", "n1", "l1"), order);
+    }
+
+    @Test
+    @DisplayName("LOW tasks get one turn for every N NORMAL tasks")
+    void testWeightedFairness() throws Exception {
+        executor = new LaneExecutor("test", 2);
+        final CountDownLatch gate = block();
+        for (int i = 1; i <= 3; i++) {
+            submit(Priority.LOW, "l" + i);
+        }
+        for (int i = 1; i <= 5; i++) {
+            submit(Priority.NORMAL, "n" + i);
+        }
+        gate.countDown();
+
+        assertTrue(executor.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(List.of("n1", "n2", "l1", "n3", "n4", "l2", "n5", "l3"), order);
+    }
+
+    @Test
+    @DisplayName("Shut down executor rejects new tasks and survives failing tasks")
+    void testShutdown() throws Exception {
+        executor = new LaneExecutor("test", 1);
+        executor.submit(Priority.NORMAL, () -> {
+            throw new IllegalStateException("boom");
+        });
+        submit(Priority.NORMAL, "after");
+        assertTrue(executor.awaitIdle(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+
+        assertFalse(executor.submit(Priority.HIGH, () -> order.add("late")));
+        assertEquals(List.of("after"), order);
+    }
+
+    @Test
+    @DisplayName("Submit waits while the lanes are at capacity")
+    void testBoundedLanesBlockSubmitters() throws Exception {
+        executor = new LaneExecutor("test", 2, 2);
+        final CountDownLatch gate = block();
+        submit(Priority.NORMAL, "n1");
+        submit(Priority.LOW, "l1");
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            submit(Priority.NORMAL, "n2");
+            submitted.countDown();
+        });
+        producer.start();
+
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, executor.queued());
+        gate.countDown();
+
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(List.of("l1", "n1", "n2"), order.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("Interrupted submitter waiting for capacity is rejected")
+    void testInterruptedSubmitRejected() throws Exception {
+        executor = new LaneExecutor("test", 2, 1);
+        final CountDownLatch gate = block();
+        submit(Priority.NORMAL, "n1");
+
+        Thread.currentThread().interrupt();
+        assertFalse(executor.submit(Priority.NORMAL, () -> order.add("n2")));
+        assertTrue(Thread.interrupted());
+        gate.countDown();
+
+        assertTrue(executor.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(List.of("n1"), order);
+    }
+
+    @Test
+    @DisplayName("Worker survives a task throwing an Error")
+    void testWorkerSurvivesError() throws Exception {
+        executor = new LaneExecutor("test", 1);
+        executor.submit(Priority.NORMAL, () -> {
+            throw new AssertionError("boom");
+        });
+        submit(Priority.NORMAL, "after");
+
+        assertTrue(executor.awaitIdle(5, TimeUnit.SECONDS));
+        assertEquals(List.of("after"), order);
+    }
+
+    private CountDownLatch block() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        executor.submit(Priority.HIGH, () -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return gate;
+    }
+
+    private void submit(final Priority priority, final String name) {
+        executor.submit(priority, () -> order.add(name));
+    }
+
+}
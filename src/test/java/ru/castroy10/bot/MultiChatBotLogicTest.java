@@ -0,0 +1,91 @@
+package ru.castroy10.bot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiChatBotLogicTest {
+
+    @Test
+    @DisplayName("Chat set is sorted, deduplicated and replaceable")
+    void testChatSet() {
+        final RecordingLogic logic = new RecordingLogic(Arrays.asList(-1001L, 5L, null, 5L, -42L));
+
+        assertEquals(3, logic.getChatCount());
+        assertTrue(logic.containsChat(-1001L));
+        assertTrue(logic.containsChat(5L));
+        assertFalse(logic.containsChat(6L));
+
+        logic.setChatIds(new long[]{7L, 6L});
+
+        assertEquals(2, logic.getChatCount());
+        assertTrue(logic.containsChat(6L));
+        assertFalse(logic.containsChat(5L));
+    }
+
+    @Test
+    @DisplayName("Router delivers updates for every chat in the set, preferring single-chat logic")
+    void testRouting() {
+        final RecordingLogic multi = new RecordingLogic(List.of(100L, 200L, 300L));
+        final RecordingLogic single = new RecordingLogic(List.of());
+        final AbstractBotLogic singleChat = new AbstractBotLogic() {
+            @Override
+            public void processUpdate(final Update update) {
+                single.processUpdate(update);
+            }
+
+            @Override
+            public Long getChatId() {
+                return 200L;
+            }
+        };
+        final RouterBot bot = new RouterBot("token", "bot", List.of(multi, singleChat));
+
+        bot.onUpdateReceived(messageUpdate(100L));
+        bot.onUpdateReceived(messageUpdate(200L));
+        bot.onUpdateReceived(messageUpdate(400L));
+        multi.setChatIds(List.of(400L));
+        bot.onUpdateReceived(messageUpdate(400L));
+        bot.onUpdateReceived(messageUpdate(300L));
+
+        assertEquals(List.of(100L, 400L), multi.handledChats);
+        assertEquals(1, single.handledUpdates);
+    }
+
+    private static Update messageUpdate(final Long chatId) {
+        final Update update = new Update();
+        final Message message = new Message();
+        final Chat chat = new Chat();
+        chat.setId(chatId);
+        message.setChat(chat);
+        update.setMessage(message);
+        return update;
+    }
+
+    private static class RecordingLogic extends MultiChatBotLogic {
+
+        private final List<Long> handledChats = new ArrayList<>();
+        private int handledUpdates;
+
+        RecordingLogic(final List<Long> chatIds) {
+            super(chatIds);
+        }
+
+        @Override
+        public void processUpdate(final Update update) {
+            handledChats.add(getChatId());
+            handledUpdates++;
+        }
+
+    }
+
+}
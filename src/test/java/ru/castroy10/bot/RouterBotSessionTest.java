@@ -0,0 +1,320 @@
+package ru.castroy10.bot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.castroy10.bot.transport.BotTransport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class RouterBotSessionTest {
+
+    static final String RESPONSE = """
+            {"ok":true,"result":[
+              {"update_id":1,"message":{"message_id":1,"date":0,"from":{"id":7,"is_bot":false,"first_name":"A"},"chat":{"id":100,"type":"private"},"text":"hi"}},
+              {"update_id":2,"callback_query":{"id":"c","from":{"id":8,"is_bot":false,"first_name":"B"},"chat_instance":"i","message":{"message_id":2,"date":1,"chat":{"id":200,"type":"group"}}}},
+              {"update_id":3,"callback_query":{"id":"d","from":{"id":9,"is_bot":false,"first_name":"C"},"chat_instance":"i","inline_message_id":"x"}},
+              {"update_id":4,"inline_query":{"id":"q","from":{"id":10,"is_bot":false,"first_name":"D"},"query":"news","offset":""}},
+              {"update_id":5,"poll_answer":{"poll_id":"p","user":{"id":11,"is_bot":false,"first_name":"E"},"option_ids":[0]}},
+              {"update_id":6,"poll":{"id":"p","question":"?","options":[],"total_voter_count":0,"is_closed":false,"is_anonymous":true,"type":"regular","allows_multiple_answers":false}},
+              {"update_id":7,"my_chat_member":{"chat":{"id":300,"type":"group"},"from":{"id":12,"is_bot":false,"first_name":"F"},"date":0,"old_chat_member":{"status":"left","user":{"id":1,"is_bot":true,"first_name":"Bot"}},"new_chat_member":{"status":"member","user":{"id":1,"is_bot":true,"first_name":"Bot"}}}}
+            ]}
+            """;
+
+    @Test
+    @DisplayName("Scan resolves update type and chat ID without building updates")
+    void testScanResolvesChatIds() throws Exception {
+        final List<UpdateBatchParser.PendingUpdate> pending = new UpdateBatchParser().scan(RESPONSE.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("message", "callback_query", "callback_query", "inline_query", "poll_answer", "poll", "my_chat_member"),
+                     pending.stream().map(UpdateBatchParser.PendingUpdate::type).toList());
+        assertEquals(100L, pending.get(0).chatId());
+        assertEquals(200L, pending.get(1).chatId());
+        assertEquals(9L, pending.get(2).chatId());
+        assertEquals(10L, pending.get(3).chatId());
+        assertEquals(11L, pending.get(4).chatId());
+        assertNull(pending.get(5).chatId());
+        assertEquals(300L, pending.get(6).chatId());
+    }
+
+    @Test
+    @DisplayName("Materialized update equals the scanned slice")
+    void testMaterialize() throws Exception {
+        final UpdateBatchParser parser = new UpdateBatchParser();
+        final UpdateBatchParser.PendingUpdate pending = parser.scan(RESPONSE.getBytes(StandardCharsets.UTF_8)).getFirst();
+
+        final Update update = parser.materialize(pending);
+
+        assertEquals(1, update.getUpdateId());
+        assertEquals("hi", update.getMessage().getText());
+        assertEquals(100L, update.getMessage().getChatId());
+    }
+
+    @Test
+    @DisplayName("Telegram error response is reported")
+    void testScanError() {
+        final byte[] body = "{\"ok\":false,\"error_code\":409,\"description\":\"Conflict\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(TelegramApiRequestException.class, () -> new UpdateBatchParser().scan(body));
+    }
+
+    @Test
+    @DisplayName("Lazy mode skips updates without a handler and still advances the offset")
+    void testLazySelectionSkipsUnhandled() throws Exception {
+        final AbstractBotLogic logic = Mockito.mock(AbstractBotLogic.class);
+        when(logic.getChatId()).thenReturn(200L);
+        final RouterBotOptions options = new RouterBotOptions();
+        options.setLazyUpdateParsing(true);
+        final RouterBot bot = new RouterBot(options, "token", "bot", List.of(logic), null);
+        final RouterBotSession session = new RouterBotSession();
+        session.setOptions(options);
+        session.setCallback(bot);
+
+        final List<Update> updates = session.selectUpdates(RESPONSE.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of(2), updates.stream().map(Update::getUpdateId).toList());
+        assertEquals(6, session.getSkippedUpdates());
+        assertEquals(List.of(), session.selectUpdates(RESPONSE.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Eager mode delivers every new update")
+    void testEagerSelection() throws Exception {
+        final RouterBotOptions options = new RouterBotOptions();
+        final RouterBotSession session = new RouterBotSession();
+        session.setOptions(options);
+        session.setCallback(new RouterBot(options, "token", "bot", List.of(), null));
+
+        assertEquals(7, session.selectUpdates(RESPONSE.getBytes(StandardCharsets.UTF_8)).size());
+    }
+
+    @Test
+    @DisplayName("Pipelined polling delivers batches in order and records batch sizes")
+    void testPipelinedPolling() throws Exception {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final DefaultBotLogic logic = new DefaultBotLogic() {
+            @Override
+            public void processUpdate(final Update update) {
+                received.add(update.getUpdateId());
+            }
+        };
+        final RouterBotOptions options = new RouterBotOptions();
+        options.setPipelinedPolling(true);
+        options.setParserThreads(3);
+        options.setPrefetchBatches(2);
+        final RouterBot bot = new RouterBot(options, "token", "bot", List.of(), logic);
+        bot.setTransport(new BatchTransport(30, 4));
+        final RouterBotSession session = new RouterBotSession();
+        session.setOptions(options);
+        session.setToken("token");
+        session.setCallback(bot);
+
+        session.start();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((received.size() < 30 || bot.getPollingMetrics().getEmptyPollCount() == 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        session.stop();
+
+        assertEquals(IntStream.rangeClosed(1, 30).boxed().toList(), received);
+        final PollingMetrics metrics = bot.getPollingMetrics();
+        assertEquals(30, metrics.getUpdateCount());
+        assertEquals(4, metrics.getMaxBatchSize());
+        assertTrue(metrics.getEmptyPollCount() > 0);
+        assertTrue(metrics.getIdleTime().toNanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Graceful stop drains received updates and confirms the offset")
+    void testGracefulStopDrains() throws Exception {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final BatchTransport transport = new BatchTransport(30, 4);
+        final RouterBotSession session = startSession(transport, update -> {
+            spin(5);
+            received.add(update.getUpdateId());
+        });
+        awaitReceived(transport, 30);
+
+        final StopReport report = session.stop(Duration.ofSeconds(5));
+
+        assertEquals(IntStream.rangeClosed(1, 30).boxed().toList(), received);
+        assertTrue(report.isComplete());
+        assertTrue(report.drainedUpdates() > 0);
+        assertEquals(31, report.confirmedOffset());
+        assertEquals(31, transport.confirmedOffset);
+        assertFalse(session.isRunning());
+    }
+
+    @Test
+    @DisplayName("Graceful stop with pipelined polling returns the batch waiting for buffer space and does not wait out the timeout")
+    void testPipelinedGracefulStopDrains() throws Exception {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final BatchTransport transport = new BatchTransport(30, 4);
+        final RouterBotOptions options = new RouterBotOptions();
+        options.setPipelinedPolling(true);
+        options.setParserThreads(2);
+        options.setPrefetchBatches(1);
+        final RouterBotSession session = startSession(transport, options, update -> {
+            spin(20);
+            received.add(update.getUpdateId());
+        });
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+
+        final StopReport report = session.stop(Duration.ofSeconds(5));
+
+        assertTrue(report.elapsed().compareTo(Duration.ofSeconds(2)) < 0);
+        assertEquals(IntStream.rangeClosed(1, received.size()).boxed().toList(), received);
+        assertTrue(report.abandonedUpdates() > 0);
+        assertEquals(received.size() + 1, report.confirmedOffset());
+        assertEquals(received.size() + 1, transport.confirmedOffset);
+    }
+
+    @Test
+    @DisplayName("Graceful stop abandons updates left at the deadline and confirms the first of them")
+    void testGracefulStopAbandons() throws Exception {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final BatchTransport transport = new BatchTransport(30, 4);
+        final RouterBotSession session = startSession(transport, update -> {
+            spin(50);
+            received.add(update.getUpdateId());
+        });
+        awaitReceived(transport, 30);
+
+        final StopReport report = session.stop(Duration.ofMillis(100));
+
+        assertEquals(IntStream.rangeClosed(1, received.size()).boxed().toList(), received);
+        assertEquals(30 - received.size(), report.abandonedUpdates());
+        assertEquals(30, report.drainedUpdates() + report.abandonedUpdates());
+        assertEquals(received.size() + 1, report.confirmedOffset());
+        assertEquals(received.size() + 1, transport.confirmedOffset);
+    }
+
+    @Test
+    @DisplayName("Unexpected reader errors are logged and polling continues")
+    void testReaderSurvivesRuntimeErrors() throws Exception {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final BatchTransport transport = new BatchTransport(8, 4);
+        transport.runtimeFailures = 1;
+        final RouterBotSession session = startSession(transport, update -> received.add(update.getUpdateId()));
+        awaitReceived(transport, 8);
+
+        final StopReport report = session.stop(Duration.ofSeconds(5));
+
+        assertEquals(IntStream.rangeClosed(1, 8).boxed().toList(), received);
+        assertEquals(9, report.confirmedOffset());
+    }
+
+    private static RouterBotSession startSession(final BatchTransport transport, final Consumer<Update> handler) {
+        return startSession(transport, new RouterBotOptions(), handler);
+    }
+
+    private static RouterBotSession startSession(final BatchTransport transport, final RouterBotOptions options,
+                                                 final Consumer<Update> handler) {
+        final DefaultBotLogic logic = new DefaultBotLogic() {
+            @Override
+            public void processUpdate(final Update update) {
+                handler.accept(update);
+            }
+        };
+        final RouterBot bot = new RouterBot(options, "token", "bot", List.of(), logic);
+        bot.setTransport(transport);
+        final RouterBotSession session = new RouterBotSession();
+        session.setOptions(options);
+        session.setToken("token");
+        session.setCallback(bot);
+        session.start();
+        return session;
+    }
+
+    private static void awaitReceived(final BatchTransport transport, final int offset) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (transport.lastOffset <= offset && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Busy-waits instead of sleeping, so the handler finishes even when its thread is interrupted.
+     */
+    private static void spin(final long millis) {
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Serves message updates up to a total, in batches of a fixed size starting at the requested offset.
+     */
+    private static final class BatchTransport implements BotTransport {
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final int total;
+        private final int batchSize;
+        private volatile int lastOffset;
+        private volatile int confirmedOffset;
+        private volatile int runtimeFailures;
+
+        BatchTransport(final int total, final int batchSize) {
+            this.total = total;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public byte[] post(final String url, final byte[] body, final Duration timeout) throws IOException {
+            if (runtimeFailures > 0) {
+                runtimeFailures--;
+                throw new IllegalStateException("Transport failure");
+            }
+            final JsonNode request = objectMapper.readTree(body);
+            final int offset = request.path("offset").asInt();
+            if (request.path("timeout").asInt() == 0) {
+                confirmedOffset = offset;
+            } else {
+                lastOffset = offset;
+            }
+            final StringJoiner updates = new StringJoiner(",", "{\"ok\":true,\"result\":[", "]}");
+            for (int id = offset; id < offset + batchSize && id <= total; id++) {
+                updates.add("{\"update_id\":" + id + ",\"message\":{\"message_id\":" + id + ",\"date\":0,"
+                            + "\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"m" + id + "\"}}");
+            }
+            if (offset > total) {
+                try {
+                    Thread.sleep(5);
+                } catch (final InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return updates.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
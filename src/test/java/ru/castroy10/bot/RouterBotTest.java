@@ -9,7 +9,16 @@ import org.telegram.telegrambots.meta.api.objects.Chat;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import static org.mockito.Mockito.*;
 
@@ -46,6 +55,22 @@ class RouterBotTest {
         verify(logic2, never()).processUpdate(any());
     }
 
+    @Test
+    @DisplayName("Single-chat logic stays bound to the chat ID it had when the bot was constructed")
+    void testSingleChatLogicBoundAtConstruction() {
+        when(logic1.getChatId()).thenReturn(300L);
+        final Update update = new Update();
+        final Message message = new Message();
+        final Chat chat = new Chat();
+        chat.setId(100L);
+        message.setChat(chat);
+        update.setMessage(message);
+
+        routerBot.onUpdateReceived(update);
+
+        verify(logic1, times(1)).processUpdate(update);
+    }
+
     @Test
     @DisplayName("Ignore update from unknown chat")
     void testOnUpdateReceivedIgnoresUnknownChat() {
@@ -83,6 +108,29 @@ class RouterBotTest {
         verify(defaultLogic, times(1)).processUpdate(update);
     }
 
+    @Test
+    @DisplayName("Interceptor rejecting an update stops routing")
+    void testInterceptorShortCircuits() {
+        final UpdateInterceptor first = Mockito.mock(UpdateInterceptor.class);
+        final UpdateInterceptor second = Mockito.mock(UpdateInterceptor.class);
+        when(first.intercept(any(), any())).thenReturn(false);
+        routerBot.addInterceptor(first);
+        routerBot.addInterceptor(second);
+
+        final Update update = new Update();
+        final Message message = new Message();
+        final Chat chat = new Chat();
+        chat.setId(100L);
+        message.setChat(chat);
+        update.setMessage(message);
+
+        routerBot.onUpdateReceived(update);
+
+        verify(first, times(1)).intercept(update, 100L);
+        verify(second, never()).intercept(any(), any());
+        verify(logic1, never()).processUpdate(any());
+    }
+
     @Test
     @DisplayName("Handle update when botLogics is null")
     void testOnUpdateReceivedWithNullLogics() {
@@ -117,5 +165,82 @@ class RouterBotTest {
         verify(defaultLogic, times(1)).processUpdate(update);
     }
 
+    @Test
+    @DisplayName("Emit flight recorder events for received and handled updates")
+    void testEmitsFlightRecorderEvents() throws IOException {
+        final Update update = new Update();
+        update.setUpdateId(42);
+        final Message message = new Message();
+        final Chat chat = new Chat();
+        chat.setId(100L);
+        message.setChat(chat);
+        update.setMessage(message);
+
+        final Path file = Files.createTempFile("router-bot", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("ru.castroy10.UpdateReceived");
+            recording.enable("ru.castroy10.UpdateRouted");
+            recording.enable("ru.castroy10.Handler");
+            recording.start();
+            routerBot.onUpdateReceived(update);
+            recording.stop();
+            recording.dump(file);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            final List<String> names = events.stream().map(event -> event.getEventType().getName()).toList();
+            Assertions.assertEquals(List.of("ru.castroy10.UpdateReceived", "ru.castroy10.UpdateRouted", "ru.castroy10.Handler"), names);
+            Assertions.assertEquals("message", events.getFirst().getString("updateType"));
+            Assertions.assertEquals(100L, events.getLast().getLong("chatId"));
+            Assertions.assertEquals(42, events.getLast().getInt("updateId"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Updates from a HIGH priority chat are dispatched ahead of queued updates")
+    void testPriorityDispatch() throws Exception {
+        final List<Integer> handled = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        doAnswer(invocation -> {
+            final Update update = invocation.getArgument(0);
+            if (update.getUpdateId() == 1) {
+                started.countDown();
+                gate.await();
+            }
+            handled.add(update.getUpdateId());
+            done.countDown();
+            return null;
+        }).when(logic1).processUpdate(any());
+        doAnswer(invocation -> {
+            handled.add(invocation.<Update>getArgument(0).getUpdateId());
+            done.countDown();
+            return null;
+        }).when(logic2).processUpdate(any());
+        routerBot.setChatPriority(200L, Priority.HIGH);
+        routerBot.enablePriorityLanes(4);
+
+        routerBot.onUpdatesReceived(List.of(messageUpdate(1, 100L)));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        routerBot.onUpdatesReceived(List.of(messageUpdate(2, 100L), messageUpdate(3, 100L), messageUpdate(4, 200L)));
+        gate.countDown();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(1, 4, 2, 3), handled);
+        routerBot.onClosing();
+    }
+
+    private static Update messageUpdate(final int updateId, final Long chatId) {
+        final Update update = new Update();
+        update.setUpdateId(updateId);
+        final Message message = new Message();
+        final Chat chat = new Chat();
+        chat.setId(chatId);
+        message.setChat(chat);
+        update.setMessage(message);
+        return update;
+    }
+
 }
-        
\ No newline at end of file
@@ -0,0 +1,120 @@
+package ru.castroy10.bot;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares allocation of eager and lazy getUpdates parsing on mixed traffic.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class UpdateParsingBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Test
+    @DisplayName("Lazy parsing allocates less than eager parsing on mixed traffic")
+    void benchmarkAllocation() throws Exception {
+        final byte[] body = mixedBatch().getBytes(StandardCharsets.UTF_8);
+        final AbstractBotLogic logic = new AbstractBotLogic() {
+            @Override
+            public void processUpdate(final Update update) {
+            }
+
+            @Override
+            public Long getChatId() {
+                return 100L;
+            }
+        };
+        final RouterBot bot = new RouterBot("token", "bot", List.of(logic));
+        final UpdateBatchParser parser = new UpdateBatchParser();
+
+        final Workload eager = () -> new GetUpdates().deserializeResponse(new String(body, StandardCharsets.UTF_8)).size();
+        final Workload lazy = () -> {
+            int delivered = 0;
+            for (final UpdateBatchParser.PendingUpdate update : parser.scan(body)) {
+                if (bot.wantsUpdate(update.chatId())) {
+                    parser.materialize(update);
+                    delivered++;
+                }
+            }
+            return delivered;
+        };
+
+        final Result eagerResult = measure(eager);
+        final Result lazyResult = measure(lazy);
+        System.out.printf("eager: %,d bytes/batch, %,d ns/batch%n", eagerResult.bytesPerBatch(), eagerResult.nanosPerBatch());
+        System.out.printf("lazy:  %,d bytes/batch, %,d ns/batch%n", lazyResult.bytesPerBatch(), lazyResult.nanosPerBatch());
+
+        assertTrue(lazyResult.bytesPerBatch() < eagerResult.bytesPerBatch());
+    }
+
+    private static Result measure(final Workload workload) throws Exception {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += workload.run();
+        }
+        final long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += workload.run();
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        assertTrue(sink > 0);
+        return new Result(bytes / ITERATIONS, elapsed / ITERATIONS);
+    }
+
+    /**
+     * Builds a batch where 20% of updates target the handled chat, 50% come from unknown chats
+     * and 30% are update types without a chat.
+     */
+    private static String mixedBatch() {
+        final StringBuilder json = new StringBuilder("{\"ok\":true,\"result\":[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            final int bucket = i % 10;
+            if (bucket < 2) {
+                json.append(message(i, 100));
+            } else if (bucket < 7) {
+                json.append(message(i, 1_000 + i));
+            } else {
+                json.append("{\"update_id\":").append(i + 1)
+                    .append(",\"poll\":{\"id\":\"p").append(i)
+                    .append("\",\"question\":\"Which option?\",\"options\":[{\"text\":\"a\",\"voter_count\":1},{\"text\":\"b\",\"voter_count\":2}],")
+                    .append("\"total_voter_count\":3,\"is_closed\":false,\"is_anonymous\":true,\"type\":\"regular\",\"allows_multiple_answers\":false}}");
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String message(final int index, final long chatId) {
+        return "{\"update_id\":" + (index + 1) + ",\"message\":{\"message_id\":" + index + ",\"date\":1700000000,"
+               + "\"from\":{\"id\":" + chatId + ",\"is_bot\":false,\"first_name\":\"User\",\"username\":\"user" + chatId + "\",\"language_code\":\"en\"},"
+               + "\"chat\":{\"id\":" + chatId + ",\"type\":\"private\",\"first_name\":\"User\",\"username\":\"user" + chatId + "\"},"
+               + "\"text\":\"Hello, this is message number " + index + " with some text\","
+               + "\"entities\":[{\"type\":\"bold\",\"offset\":0,\"length\":5}]}}";
+    }
+
+    @FunctionalInterface
+    private interface Workload {
+        int run() throws Exception;
+    }
+
+    private record Result(long bytesPerBatch, long nanosPerBatch) {
+    }
+
+}
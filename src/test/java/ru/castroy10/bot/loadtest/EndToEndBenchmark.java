@@ -0,0 +1,66 @@
+package ru.castroy10.bot.loadtest;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.castroy10.TgBotBuilder;
+import ru.castroy10.bot.MultiChatBotLogic;
+import ru.castroy10.bot.transport.JdkHttpBotTransport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures end-to-end updates/sec and reply latency of an echo bot against FakeBotApiServer
+ * with a fixed call latency, for a few bot configurations. Unpaced runs measure saturation throughput, where
+ * latency is dominated by updates queued in the bot; the paced run shows latency below saturation.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class EndToEndBenchmark {
+
+    private static final int UPDATES = 5_000;
+
+    private static final int PACED_RATE = 200;
+
+    @Test
+    @DisplayName("Echo bot end to end")
+    void benchmarkEchoBot() throws Exception {
+        run("warmup", profile(0), TgBotBuilder.create());
+        run("default", profile(0), TgBotBuilder.create());
+        run("priority lanes", profile(0), TgBotBuilder.create().priorityLanes(4));
+        run("pipelined", profile(0), TgBotBuilder.create().pipelinedPolling(2, 4));
+        run("jdk transport", profile(0), TgBotBuilder.create().transport(new JdkHttpBotTransport()));
+        run("paced " + PACED_RATE + "/s", profile(PACED_RATE), TgBotBuilder.create());
+    }
+
+    private static LoadProfile profile(final int updatesPerSecond) {
+        return LoadProfile.create()
+                          .chats(1_000)
+                          .updates(updatesPerSecond > 0 ? updatesPerSecond * 5 : UPDATES)
+                          .updatesPerSecond(updatesPerSecond)
+                          .callLatency(Duration.ofMillis(1));
+    }
+
+    private static void run(final String name, final LoadProfile profile, final TgBotBuilder builder) throws Exception {
+        final LoadDriver.LoadReport report = new LoadDriver(profile).run(builder.registerLogic(List.of(echo(profile))),
+                                                                          Duration.ofMinutes(2));
+
+        assertEquals(profile.getUpdates(), report.updates());
+        if (!name.equals("warmup")) {
+            System.out.printf("%-16s %s%n", name, report);
+        }
+    }
+
+    private static MultiChatBotLogic echo(final LoadProfile profile) {
+        return new MultiChatBotLogic(profile.chatIds()) {
+            @Override
+            public void processUpdate(final Update update) {
+                sendMessage("echo");
+            }
+        };
+    }
+
+}
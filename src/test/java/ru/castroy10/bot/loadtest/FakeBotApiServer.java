@@ -0,0 +1,248 @@
+package ru.castroy10.bot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the Bot API.
+ * getUpdates serves updates from an UpdateGenerator, honouring offset, limit and long polling timeout;
+ * updates below the requested offset are treated as confirmed. send* and edit* calls answer with a message
+ * after the profile's latency, or with 429 Too Many Requests at the profile's rate; other methods answer true.
+ * Reply latency is measured from the moment an update became available to the next reply sent to its chat,
+ * so it assumes the bot answers every update with one message.
+ */
+final class FakeBotApiServer implements Closeable {
+
+    private static final byte[] TRUE = "{\"ok\":true,\"result\":true}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GET_ME = "{\"ok\":true,\"result\":{\"id\":1,\"is_bot\":true,\"first_name\":\"Bot\",\"username\":\"load_test_bot\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // Without TCP_NODELAY the server stalls on delayed ACKs between response headers and body.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final LoadProfile profile;
+    private final UpdateGenerator generator;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Queue<Available> pending = new ArrayDeque<>();
+    private final Map<Long, Queue<Long>> unanswered = new ConcurrentHashMap<>();
+    private final AtomicInteger messageIds = new AtomicInteger();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder replies = new LongAdder();
+    private long[] latencies = new long[1024];
+    private int latencyCount;
+    private long startNanos;
+    private volatile long lastActivityNanos;
+    private volatile int confirmed;
+    private boolean closed;
+
+    private record Available(UpdateGenerator.GeneratedUpdate update, long availableNanos) {
+    }
+
+    /**
+     * Starts the server on an ephemeral local port.
+     *
+     * @param profile the load profile
+     * @throws IOException if the server cannot be started
+     */
+    FakeBotApiServer(final LoadProfile profile) throws IOException {
+        this.profile = profile;
+        this.generator = new UpdateGenerator(profile);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the base URL to pass to TgBotBuilder.baseUrl().
+     *
+     * @return the base URL ending with "/bot"
+     */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    int getConfirmed() {
+        return confirmed;
+    }
+
+    long getReplies() {
+        return replies.sum();
+    }
+
+    long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    synchronized long getStartNanos() {
+        return startNanos;
+    }
+
+    synchronized long[] getLatencies() {
+        final long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String path = exchange.getRequestURI().getPath();
+            // Bot API method names are case-insensitive, e.g. GetUpdates.PATH is "getupdates".
+            final String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            final JsonNode request = parse(exchange.getRequestBody().readAllBytes());
+            final byte[] response;
+            if (method.equals("getupdates")) {
+                response = getUpdates(request);
+            } else if (method.equals("getme")) {
+                response = GET_ME;
+            } else if (method.equals("deletewebhook")) {
+                response = TRUE;
+            } else {
+                response = call(method, request);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] getUpdates(final JsonNode request) throws InterruptedException {
+        final int offset = request.path("offset").asInt(0);
+        final int limit = request.path("limit").asInt(100);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(request.path("timeout").asInt(0));
+        final StringBuilder json = new StringBuilder("{\"ok\":true,\"result\":[");
+        synchronized (this) {
+            if (startNanos == 0) {
+                startNanos = System.nanoTime();
+            }
+            confirm(offset);
+            while (true) {
+                final long now = System.nanoTime();
+                final long nextDue = generate(now, limit);
+                if (!pending.isEmpty() || closed || now >= deadline) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(Math.min(nextDue, deadline) - now, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+            int count = 0;
+            for (final Iterator<Available> iterator = pending.iterator(); iterator.hasNext() && count < limit; count++) {
+                json.append(count > 0 ? "," : "").append(iterator.next().update().json());
+            }
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes due updates available and returns the time the next one is due.
+     * Without a rate limit only as many updates as the bot asked for are generated.
+     */
+    private long generate(final long now, final int limit) {
+        final int rate = profile.getUpdatesPerSecond();
+        while (generator.hasNext()) {
+            final long due = rate > 0 ? startNanos + generator.generated() * TimeUnit.SECONDS.toNanos(1) / rate : now;
+            if (due > now || rate <= 0 && pending.size() >= limit) {
+                return due;
+            }
+            final UpdateGenerator.GeneratedUpdate update = generator.next();
+            pending.add(new Available(update, due));
+            unanswered.computeIfAbsent(update.chatId(), chatId -> new ConcurrentLinkedQueue<>()).add(due);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private void confirm(final int offset) {
+        while (!pending.isEmpty() && pending.peek().update().updateId() < offset) {
+            pending.remove();
+        }
+        if (offset - 1 > confirmed) {
+            confirmed = offset - 1;
+            lastActivityNanos = System.nanoTime();
+        }
+    }
+
+    private byte[] call(final String method, final JsonNode request) throws InterruptedException {
+        if (!profile.getCallLatency().isZero()) {
+            TimeUnit.NANOSECONDS.sleep(profile.getCallLatency().toNanos());
+        }
+        if (ThreadLocalRandom.current().nextDouble() < profile.getRateLimitProbability()) {
+            rateLimited.increment();
+            return ("{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after " + profile.getRetryAfterSeconds()
+                    + "\",\"parameters\":{\"retry_after\":" + profile.getRetryAfterSeconds() + "}}").getBytes(StandardCharsets.UTF_8);
+        }
+        if (!(method.startsWith("send") || method.startsWith("edit")) || method.equals("sendchataction")) {
+            return TRUE;
+        }
+        final long chatId = request.path("chat_id").asLong(0);
+        recordReply(chatId);
+        return ("{\"ok\":true,\"result\":{\"message_id\":" + messageIds.incrementAndGet() + ",\"date\":1700000000,"
+                + "\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"},\"text\":\"ok\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void recordReply(final long chatId) {
+        final long now = System.nanoTime();
+        replies.increment();
+        lastActivityNanos = now;
+        final Queue<Long> queue = unanswered.get(chatId);
+        final Long availableNanos = queue != null ? queue.poll() : null;
+        if (availableNanos == null) {
+            return;
+        }
+        synchronized (this) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = now - availableNanos;
+        }
+    }
+
+    private JsonNode parse(final byte[] body) {
+        try {
+            final JsonNode node = objectMapper.readTree(body);
+            return node != null ? node : objectMapper.missingNode();
+        } catch (final IOException e) {
+            // Multipart uploads are not parsed.
+            return objectMapper.missingNode();
+        }
+    }
+
+}
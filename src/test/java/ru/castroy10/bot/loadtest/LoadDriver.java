@@ -0,0 +1,112 @@
+package ru.castroy10.bot.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import ru.castroy10.TgBotBuilder;
+import ru.castroy10.bot.BotHandle;
+import ru.castroy10.bot.PollingMetrics;
+
+/**
+ * Runs a bot end to end against FakeBotApiServer and reports throughput and reply latency.
+ * The bot is configured by the caller through TgBotBuilder (logic handlers, transport, lanes, outbox);
+ * the driver only sets the token, bot name and base URL before starting it.
+ */
+public final class LoadDriver {
+
+    private static final long POLL_MILLIS = 10;
+    private static final long QUIET_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+
+    private final LoadProfile profile;
+
+    /**
+     * Result of a load run.
+     *
+     * @param updates           the number of updates confirmed by the bot
+     * @param replies           the number of send and edit calls received
+     * @param rateLimited       the number of calls answered with 429
+     * @param elapsed           the time from the first getUpdates to the last confirmation or reply
+     * @param updatesPerSecond  the confirmed updates divided by the elapsed time
+     * @param p50               the median reply latency
+     * @param p90               the 90th percentile reply latency
+     * @param p99               the 99th percentile reply latency
+     * @param max               the maximum reply latency
+     * @param averageBatchSize  the average size of non-empty getUpdates batches
+     * @param pollIdle          the time spent in getUpdates requests that returned nothing
+     */
+    public record LoadReport(int updates, long replies, long rateLimited, Duration elapsed, double updatesPerSecond,
+                             Duration p50, Duration p90, Duration p99, Duration max, double averageBatchSize, Duration pollIdle) {
+
+        @Override
+        public String toString() {
+            return String.format("%,d updates in %d ms (%,.0f updates/s), %,d replies, %,d rate limited, "
+                                 + "latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms, batch %.1f, poll idle %d ms",
+                                 updates, elapsed.toMillis(), updatesPerSecond, replies, rateLimited,
+                                 p50.toNanos() / 1e6, p90.toNanos() / 1e6, p99.toNanos() / 1e6, max.toNanos() / 1e6,
+                                 averageBatchSize, pollIdle.toMillis());
+        }
+
+    }
+
+    /**
+     * Creates a driver for the profile.
+     *
+     * @param profile the load profile
+     */
+    public LoadDriver(final LoadProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Starts a fake Bot API server, runs the bot against it until every update is confirmed and replies
+     * have stopped arriving, then stops the bot and the server.
+     *
+     * @param builder the bot configuration
+     * @param timeout the maximum duration of the run
+     * @return the load report; if the timeout expires, it covers the updates processed so far
+     * @throws Exception if the server or the bot cannot be started
+     */
+    public LoadReport run(final TgBotBuilder builder, final Duration timeout) throws Exception {
+        try (FakeBotApiServer server = new FakeBotApiServer(profile)) {
+            final BotHandle handle = builder.token("123:load")
+                                            .botName("load_test_bot")
+                                            .baseUrl(server.getBaseUrl())
+                                            .startWithHandle();
+            try {
+                await(server, System.nanoTime() + timeout.toNanos());
+            } finally {
+                handle.stop(STOP_TIMEOUT);
+            }
+            return report(server, handle.getBot().getPollingMetrics());
+        }
+    }
+
+    private void await(final FakeBotApiServer server, final long deadline) throws InterruptedException {
+        while (System.nanoTime() < deadline) {
+            final boolean confirmed = server.getConfirmed() >= profile.getUpdates();
+            final boolean quiet = System.nanoTime() - server.getLastActivityNanos() > QUIET_NANOS;
+            if (confirmed && (server.getReplies() >= profile.getUpdates() || quiet)) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+        }
+    }
+
+    private static LoadReport report(final FakeBotApiServer server, final PollingMetrics metrics) {
+        final long[] latencies = server.getLatencies();
+        final long elapsedNanos = Math.max(server.getLastActivityNanos() - server.getStartNanos(), 1);
+        return new LoadReport(server.getConfirmed(), server.getReplies(), server.getRateLimited(), Duration.ofNanos(elapsedNanos),
+                              server.getConfirmed() * 1e9 / elapsedNanos,
+                              percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                              percentile(latencies, 100), metrics.getAverageBatchSize(), metrics.getIdleTime());
+    }
+
+    private static Duration percentile(final long[] sorted, final int percentile) {
+        if (sorted.length == 0) {
+            return Duration.ZERO;
+        }
+        final int index = Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * percentile / 100.0) - 1);
+        return Duration.ofNanos(sorted[Math.max(index, 0)]);
+    }
+
+}
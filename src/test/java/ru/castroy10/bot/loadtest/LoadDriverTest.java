@@ -0,0 +1,56 @@
+package ru.castroy10.bot.loadtest;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.castroy10.TgBotBuilder;
+import ru.castroy10.bot.DefaultBotLogic;
+import ru.castroy10.bot.MultiChatBotLogic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadDriverTest {
+
+    @Test
+    @DisplayName("Every generated update is confirmed and answered")
+    void testEndToEnd() throws Exception {
+        final LoadProfile profile = LoadProfile.create().chats(20).updates(300);
+        final MultiChatBotLogic logic = new MultiChatBotLogic(profile.chatIds()) {
+            @Override
+            public void processUpdate(final Update update) {
+                sendMessage("ok");
+            }
+        };
+
+        final LoadDriver.LoadReport report = new LoadDriver(profile).run(TgBotBuilder.create().registerLogic(List.of(logic)),
+                                                                          Duration.ofSeconds(30));
+
+        assertEquals(300, report.updates());
+        assertEquals(300, report.replies());
+        assertTrue(report.updatesPerSecond() > 0);
+        assertTrue(report.p50().compareTo(report.p99()) <= 0);
+    }
+
+    @Test
+    @DisplayName("Injected 429 responses are counted instead of replies")
+    void testRateLimitInjection() throws Exception {
+        final LoadProfile profile = LoadProfile.create().chats(5).updates(200).rateLimit(0.2, 1);
+        final DefaultBotLogic logic = new DefaultBotLogic() {
+            @Override
+            public void processUpdate(final Update update) {
+                sendMessage("ok");
+            }
+        };
+
+        final LoadDriver.LoadReport report = new LoadDriver(profile).run(TgBotBuilder.create().registerDefaultLogic(logic),
+                                                                          Duration.ofSeconds(30));
+
+        assertEquals(200, report.updates());
+        assertTrue(report.rateLimited() > 0);
+        assertEquals(200, report.replies() + report.rateLimited());
+    }
+
+}
@@ -0,0 +1,155 @@
+package ru.castroy10.bot.loadtest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Settings of a synthetic load run: which updates FakeBotApiServer generates
+ * and how it answers outbound calls.
+ */
+public final class LoadProfile {
+
+    static final long FIRST_CHAT_ID = 1_000_000L;
+
+    private int chats = 100;
+    private int updates = 10_000;
+    private int updatesPerSecond;
+    private int messageWeight = 8;
+    private int callbackWeight = 1;
+    private int editWeight = 1;
+    private Duration callLatency = Duration.ZERO;
+    private double rateLimitProbability;
+    private int retryAfterSeconds = 1;
+
+    private LoadProfile() {
+    }
+
+    /**
+     * Creates a profile with 100 chats, 10 000 updates generated as fast as they are fetched,
+     * an 8:1:1 mix of messages, callback queries and edited messages, and instant call responses.
+     *
+     * @return a new LoadProfile instance
+     */
+    public static LoadProfile create() {
+        return new LoadProfile();
+    }
+
+    /**
+     * Sets the number of distinct chats updates are spread over.
+     *
+     * @param chats the chat count
+     * @return the profile instance
+     */
+    public LoadProfile chats(final int chats) {
+        this.chats = chats;
+        return this;
+    }
+
+    /**
+     * Sets the total number of updates generated during the run.
+     *
+     * @param updates the update count
+     * @return the profile instance
+     */
+    public LoadProfile updates(final int updates) {
+        this.updates = updates;
+        return this;
+    }
+
+    /**
+     * Sets the generation rate.
+     *
+     * @param updatesPerSecond the rate, or 0 to make every update available immediately
+     * @return the profile instance
+     */
+    public LoadProfile updatesPerSecond(final int updatesPerSecond) {
+        this.updatesPerSecond = updatesPerSecond;
+        return this;
+    }
+
+    /**
+     * Sets the relative weights of generated update types.
+     *
+     * @param messages  the weight of text messages
+     * @param callbacks the weight of callback queries
+     * @param edits     the weight of edited messages
+     * @return the profile instance
+     */
+    public LoadProfile mix(final int messages, final int callbacks, final int edits) {
+        this.messageWeight = messages;
+        this.callbackWeight = callbacks;
+        this.editWeight = edits;
+        return this;
+    }
+
+    /**
+     * Sets the time the server takes to answer send, edit and other outbound calls.
+     *
+     * @param callLatency the latency
+     * @return the profile instance
+     */
+    public LoadProfile callLatency(final Duration callLatency) {
+        this.callLatency = callLatency;
+        return this;
+    }
+
+    /**
+     * Makes a share of outbound calls fail with 429 Too Many Requests.
+     *
+     * @param probability       the share of calls rejected, from 0 to 1
+     * @param retryAfterSeconds the retry_after value returned with the error
+     * @return the profile instance
+     */
+    public LoadProfile rateLimit(final double probability, final int retryAfterSeconds) {
+        this.rateLimitProbability = probability;
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    /**
+     * Returns the IDs of the generated chats, for binding logic handlers.
+     *
+     * @return the chat IDs
+     */
+    public List<Long> chatIds() {
+        return LongStream.range(FIRST_CHAT_ID, FIRST_CHAT_ID + chats).boxed().toList();
+    }
+
+    int getChats() {
+        return chats;
+    }
+
+    int getUpdates() {
+        return updates;
+    }
+
+    int getUpdatesPerSecond() {
+        return updatesPerSecond;
+    }
+
+    int getMessageWeight() {
+        return messageWeight;
+    }
+
+    int getCallbackWeight() {
+        return callbackWeight;
+    }
+
+    int getEditWeight() {
+        return editWeight;
+    }
+
+    Duration getCallLatency() {
+        return callLatency;
+    }
+
+    double getRateLimitProbability() {
+        return rateLimitProbability;
+    }
+
+    int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
@@ -0,0 +1,68 @@
+package ru.castroy10.bot.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of update JSON following a LoadProfile.
+ * Update IDs start at 1; chats are chosen at random from the profile's chat IDs.
+ */
+final class UpdateGenerator {
+
+    private final LoadProfile profile;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final int totalWeight;
+    private int nextUpdateId = 1;
+
+    /**
+     * A generated update.
+     *
+     * @param updateId the update ID
+     * @param chatId   the chat the update belongs to
+     * @param json     the update JSON
+     */
+    record GeneratedUpdate(int updateId, long chatId, String json) {
+    }
+
+    UpdateGenerator(final LoadProfile profile) {
+        this.profile = profile;
+        this.totalWeight = profile.getMessageWeight() + profile.getCallbackWeight() + profile.getEditWeight();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Update mix must have a positive weight");
+        }
+    }
+
+    boolean hasNext() {
+        return nextUpdateId <= profile.getUpdates();
+    }
+
+    int generated() {
+        return nextUpdateId - 1;
+    }
+
+    GeneratedUpdate next() {
+        final int updateId = nextUpdateId++;
+        final long chatId = LoadProfile.FIRST_CHAT_ID + random.nextInt(profile.getChats());
+        final int pick = random.nextInt(totalWeight);
+        final String json;
+        if (pick < profile.getMessageWeight()) {
+            json = "{\"update_id\":" + updateId + ",\"message\":" + message(updateId, chatId, "message " + updateId) + "}";
+        } else if (pick < profile.getMessageWeight() + profile.getCallbackWeight()) {
+            json = "{\"update_id\":" + updateId + ",\"callback_query\":{\"id\":\"cb" + updateId + "\"," + user(chatId)
+                   + ",\"chat_instance\":\"" + chatId + "\",\"data\":\"button " + updateId + "\",\"message\":"
+                   + message(updateId, chatId, "menu") + "}}";
+        } else {
+            json = "{\"update_id\":" + updateId + ",\"edited_message\":" + message(updateId, chatId, "edited " + updateId) + "}";
+        }
+        return new GeneratedUpdate(updateId, chatId, json);
+    }
+
+    private static String message(final int messageId, final long chatId, final String text) {
+        return "{\"message_id\":" + messageId + ",\"date\":1700000000," + user(chatId)
+               + ",\"chat\":{\"id\":" + chatId + ",\"type\":\"private\",\"first_name\":\"User\"},\"text\":\"" + text + "\"}";
+    }
+
+    private static String user(final long userId) {
+        return "\"from\":{\"id\":" + userId + ",\"is_bot\":false,\"first_name\":\"User\"}";
+    }
+
+}
@@ -0,0 +1,132 @@
+package ru.castroy10.bot.outbox;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.castroy10.bot.DefaultBotLogic;
+import ru.castroy10.bot.RouterBot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares end-to-end delivery throughput of the outbox with plain synchronous calls,
+ * against a sender that simulates a fixed Bot API round trip.
+ * Calls are made the way the library makes them: a logic handler calls sendMessage for each update,
+ * and the updates are handled one after another on a single thread, like the session handler thread.
+ * Each outbox run starts delivery first and ends when every call has been confirmed, so the rate includes
+ * journaling, fsync and sending; the handler rate shows how long the handler thread was held up.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class OutboxBenchmark {
+
+    private static final int CALLS = 400;
+    private static final int CHATS = 40;
+    private static final long ROUND_TRIP_MILLIS = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Outbox frees the handler thread, delivers across chats faster than synchronous calls and shares fsyncs")
+    void benchmarkOutbox() throws Exception {
+        final SlowBot syncBot = new SlowBot();
+        final long syncStart = System.nanoTime();
+        for (int i = 0; i < CALLS / 4; i++) {
+            syncBot.onUpdateReceived(update(i % CHATS, i));
+        }
+        final long syncRate = rate(CALLS / 4, System.nanoTime() - syncStart);
+        System.out.printf("synchronous:                      %,5d calls/s%n", syncRate);
+
+        final Run oneChat = run("one-chat", 4, 1);
+        final Run oneSender = run("one-sender", 1, CHATS);
+        final Run fourSenders = run("four-senders", 4, CHATS);
+        final Run eightSenders = run("eight-senders", 8, CHATS);
+        print("outbox, 4 senders, 1 chat:", oneChat);
+        print("outbox, 1 sender, " + CHATS + " chats:", oneSender);
+        print("outbox, 4 senders, " + CHATS + " chats:", fourSenders);
+        print("outbox, 8 senders, " + CHATS + " chats:", eightSenders);
+
+        assertTrue(fourSenders.rate() > 2 * syncRate);
+        assertTrue(fourSenders.handlerRate() > 10 * fourSenders.rate());
+        assertTrue(fourSenders.commits() < CALLS);
+    }
+
+    private Run run(final String name, final int senders, final int chats) throws Exception {
+        try (Outbox outbox = new Outbox(directory.resolve(name), 64L * 1024 * 1024, senders)) {
+            final SlowBot bot = new SlowBot();
+            bot.setOutbox(outbox);
+            bot.onRegister();
+            final long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                bot.onUpdateReceived(update(i % chats, i));
+            }
+            final long handlerNanos = System.nanoTime() - start;
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (outbox.getDeliveredCount() < CALLS && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            final long deliverNanos = System.nanoTime() - start;
+            assertEquals(CALLS, outbox.getDeliveredCount());
+            return new Run(rate(CALLS, deliverNanos), rate(CALLS, handlerNanos), outbox.getCommitCount());
+        }
+    }
+
+    private static void print(final String name, final Run run) {
+        System.out.printf("%-33s %,5d calls/s delivered (handler %,d updates/s, %d fsyncs for %d calls)%n",
+                          name, run.rate(), run.handlerRate(), run.commits(), CALLS);
+    }
+
+    private static long rate(final int calls, final long nanos) {
+        return calls * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1);
+    }
+
+    private static Update update(final int chat, final int index) {
+        final Chat target = new Chat();
+        target.setId(100L + chat);
+        final Message message = new Message();
+        message.setChat(target);
+        message.setText("Update number " + index);
+        final Update update = new Update();
+        update.setUpdateId(index + 1);
+        update.setMessage(message);
+        return update;
+    }
+
+    private record Run(long rate, long handlerRate, long commits) {
+    }
+
+    private static class SlowBot extends RouterBot {
+
+        SlowBot() {
+            super("token", "bot", List.of(), new DefaultBotLogic() {
+                @Override
+                public void processUpdate(final Update update) {
+                    sendMessage("Notification for " + update.getMessage().getText());
+                }
+            });
+        }
+
+        @Override
+        public <T extends Serializable, Method extends BotApiMethod<T>> T execute(final Method method) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(ROUND_TRIP_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,266 @@
+package ru.castroy10.bot.outbox;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiValidationException;
+import ru.castroy10.bot.Priority;
+import ru.castroy10.bot.RouterBot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Calls are delivered in order and acknowledged")
+    void testDeliversAndAcknowledges() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        try (Outbox outbox = new Outbox(directory)) {
+            outbox.start(bot);
+            outbox.enqueue(message("one"));
+            outbox.enqueue(message("two"));
+            awaitDelivered(outbox, 2);
+        }
+
+        assertEquals(List.of("one", "two"), bot.texts());
+        try (Outbox reopened = new Outbox(directory)) {
+            assertEquals(0, reopened.getPendingCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Unacknowledged calls are replayed after reopening, ignoring a torn tail")
+    void testReplaysAfterRestart() throws Exception {
+        final SendMessage withKeyboard = message("two");
+        withKeyboard.setReplyMarkup(new InlineKeyboardMarkup(List.of(List.of(
+                InlineKeyboardButton.builder().text("OK").callbackData("ok").build()))));
+        try (Outbox outbox = new Outbox(directory)) {
+            outbox.enqueue(message("one"));
+            outbox.enqueue(withKeyboard);
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            Files.write(segments.max(Path::compareTo).orElseThrow(), new byte[]{1, 0, 0, 0}, StandardOpenOption.APPEND);
+        }
+
+        final RecordingBot bot = new RecordingBot();
+        try (Outbox outbox = new Outbox(directory)) {
+            assertEquals(2, outbox.getPendingCount());
+            outbox.start(bot);
+            awaitDelivered(outbox, 2);
+        }
+
+        assertEquals(List.of("one", "two"), bot.texts());
+        assertEquals(withKeyboard, bot.sent.get(1));
+    }
+
+    @Test
+    @DisplayName("Rate limited calls are retried and rejected calls are dropped")
+    void testRetryAndDrop() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        bot.failures.put("retried", error(429, "{\"retry_after\":0}"));
+        bot.failures.put("rejected", error(400, null));
+        try (Outbox outbox = new Outbox(directory)) {
+            outbox.start(bot);
+            outbox.enqueue(message("retried"));
+            outbox.enqueue(message("rejected"));
+            outbox.enqueue(message("sent"));
+            awaitDelivered(outbox, 2);
+
+            assertEquals(1, outbox.getDroppedCount());
+            assertEquals(0, outbox.getPendingCount());
+        }
+
+        assertEquals(List.of("retried", "sent"), bot.texts());
+    }
+
+    @Test
+    @DisplayName("Fully acknowledged segments are deleted")
+    void testDeletesAcknowledgedSegments() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        try (Outbox outbox = new Outbox(directory, 256)) {
+            outbox.start(bot);
+            for (int i = 0; i < 20; i++) {
+                outbox.enqueue(message("message " + i));
+            }
+            awaitDelivered(outbox, 20);
+            outbox.enqueue(message("last"));
+            awaitDelivered(outbox, 21);
+        }
+
+        try (Stream<Path> segments = Files.list(directory)) {
+            assertTrue(segments.count() <= 2);
+        }
+    }
+
+    @Test
+    @DisplayName("A rate limited chat does not stall other chats, and each chat keeps its order")
+    void testChatsDeliveredConcurrently() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        bot.failures.put("a1", error(429, "{\"retry_after\":1}"));
+        try (Outbox outbox = new Outbox(directory, 1024 * 1024, 2)) {
+            outbox.enqueue(message("1", "a1"));
+            outbox.enqueue(message("1", "a2"));
+            outbox.enqueue(message("2", "b1"));
+            outbox.enqueue(message("2", "b2"));
+            outbox.start(bot);
+            awaitDelivered(outbox, 4);
+        }
+
+        assertEquals(List.of("b1", "b2", "a1", "a2"), bot.texts());
+    }
+
+    @Test
+    @DisplayName("Waiting chats are served by priority with weighted LOW turns")
+    void testPriorityOrder() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        try (Outbox outbox = new Outbox(directory, 1024 * 1024, 1)) {
+            for (int i = 1; i <= 3; i++) {
+                outbox.enqueue(message("l" + i, "l" + i), Priority.LOW);
+            }
+            for (int i = 1; i <= 4; i++) {
+                outbox.enqueue(message("n" + i, "n" + i), Priority.NORMAL);
+            }
+            outbox.enqueue(message("h1", "h1"), Priority.HIGH);
+            outbox.start(bot, 2);
+            awaitDelivered(outbox, 8);
+        }
+
+        assertEquals(List.of("h1", "n1", "n2", "l1", "n3", "n4", "l2", "l3"), bot.texts());
+    }
+
+    @Test
+    @DisplayName("Invalid calls are rejected before they are written to the journal")
+    void testRejectsInvalidCalls() throws Exception {
+        try (Outbox outbox = new Outbox(directory)) {
+            assertThrows(TelegramApiValidationException.class, () -> outbox.enqueue(message("")));
+            assertEquals(0, outbox.getPendingCount());
+        }
+        try (Outbox reopened = new Outbox(directory)) {
+            assertEquals(0, reopened.getPendingCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Validation and unexpected errors drop the call without blocking the chat or the sender")
+    void testDropsOnValidationAndRuntimeErrors() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        bot.failures.put("invalid", new TelegramApiValidationException("Text can't be empty", message("invalid")));
+        bot.failures.put("broken", new IllegalStateException("Sender failure"));
+        try (Outbox outbox = new Outbox(directory, 1024 * 1024, 1)) {
+            outbox.enqueue(message("invalid"));
+            outbox.enqueue(message("broken"));
+            outbox.enqueue(message("sent"));
+            outbox.start(bot);
+            awaitDelivered(outbox, 1);
+
+            assertEquals(2, outbox.getDroppedCount());
+            assertEquals(0, outbox.getPendingCount());
+        }
+
+        assertEquals(List.of("sent"), bot.texts());
+    }
+
+    @Test
+    @DisplayName("Each delivery attempt emits a flight recorder API call event")
+    void testEmitsApiCallEvents() throws Exception {
+        final RecordingBot bot = new RecordingBot();
+        bot.failures.put("retried", error(429, "{\"retry_after\":0}"));
+        final Path file = Files.createTempFile("outbox", ".jfr");
+        try (Recording recording = new Recording(); Outbox outbox = new Outbox(directory)) {
+            recording.enable("ru.castroy10.ApiCall");
+            recording.start();
+            outbox.start(bot);
+            outbox.enqueue(message("retried"));
+            awaitDelivered(outbox, 1);
+            recording.stop();
+            recording.dump(file);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(List.of("error", "ok"), events.stream().map(event -> event.getString("outcome")).toList());
+            assertEquals("sendmessage", events.getLast().getString("method"));
+            assertEquals(100L, events.getLast().getLong("chatId"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static SendMessage message(final String text) {
+        return message("100", text);
+    }
+
+    private static SendMessage message(final String chatId, final String text) {
+        return new SendMessage(chatId, text);
+    }
+
+    private static void awaitDelivered(final Outbox outbox, final int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + 5_000_000_000L;
+        while (outbox.getDeliveredCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, outbox.getDeliveredCount());
+    }
+
+    private static TelegramApiRequestException error(final int code, final String parameters) throws IOException {
+        final String json = "{\"ok\":false,\"error_code\":" + code + ",\"description\":\"error\""
+                            + (parameters != null ? ",\"parameters\":" + parameters : "") + "}";
+        final ApiResponse<Object> response = new ObjectMapper().readValue(json, new TypeReference<>() {
+        });
+        return new TelegramApiRequestException("Error executing request", response);
+    }
+
+    private static class RecordingBot extends RouterBot {
+
+        private final List<BotApiMethod<?>> sent = new CopyOnWriteArrayList<>();
+        private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+        RecordingBot() {
+            super("token", "bot", List.of());
+        }
+
+        @Override
+        public <T extends Serializable, Method extends BotApiMethod<T>> T execute(final Method method) throws TelegramApiException {
+            final Exception failure = failures.remove(((SendMessage) method).getText());
+            if (failure instanceof final RuntimeException runtimeFailure) {
+                throw runtimeFailure;
+            }
+            if (failure instanceof final TelegramApiException apiFailure) {
+                throw apiFailure;
+            }
+            sent.add(method);
+            return null;
+        }
+
+        List<String> texts() {
+            return sent.stream().map(method -> ((SendMessage) method).getText()).toList();
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package ru.castroy10.bot.record;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.LongPollingBot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UpdateRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Recorded updates are split into segments and read back in order")
+    void testRecordAndReadSegments() throws IOException {
+        try (UpdateRecorder recorder = new UpdateRecorder(directory, 256)) {
+            for (int i = 1; i <= 10; i++) {
+                recorder.record(update(i, 100L + i));
+            }
+        }
+
+        assertTrue(UpdateLog.segments(directory).size() > 1);
+        try (UpdateLog log = new UpdateLog(directory)) {
+            for (int i = 1; i <= 10; i++) {
+                final UpdateLog.RecordedUpdate recorded = log.next();
+                assertEquals(i, recorded.update().getUpdateId());
+                assertEquals(100L + i, recorded.update().getMessage().getChatId());
+            }
+            assertNull(log.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Truncated last record is ignored")
+    void testTruncatedRecordIgnored() throws IOException {
+        try (UpdateRecorder recorder = new UpdateRecorder(directory)) {
+            recorder.record(update(1, 100L));
+            recorder.record(update(2, 100L));
+        }
+        final Path segment = UpdateLog.segments(directory).getFirst();
+        final byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 5), StandardOpenOption.TRUNCATE_EXISTING);
+
+        try (UpdateLog log = new UpdateLog(directory)) {
+            assertEquals(1, log.next().update().getUpdateId());
+            assertNull(log.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Record with a corrupt length ends its segment without failing")
+    void testCorruptLengthIgnored() throws IOException {
+        try (UpdateRecorder recorder = new UpdateRecorder(directory)) {
+            recorder.record(update(1, 100L));
+        }
+        final Path segment = UpdateLog.segments(directory).getFirst();
+        Files.write(segment, new byte[]{0, 0, 0, 0, 0, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0}, StandardOpenOption.APPEND);
+
+        try (UpdateLog log = new UpdateLog(directory)) {
+            assertEquals(1, log.next().update().getUpdateId());
+            assertNull(log.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Buffered records are flushed when traffic stops")
+    void testFlushedWithoutTraffic() throws Exception {
+        try (UpdateRecorder recorder = new UpdateRecorder(directory)) {
+            recorder.record(update(1, 100L));
+            final long deadline = System.nanoTime() + 5_000_000_000L;
+            while (Files.size(UpdateLog.segments(directory).getFirst()) <= UpdateLog.HEADER_BYTES && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+
+            try (UpdateLog log = new UpdateLog(directory)) {
+                assertEquals(1, log.next().update().getUpdateId());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Replay feeds every recorded update to the bot")
+    void testReplay() throws IOException, InterruptedException {
+        try (UpdateRecorder recorder = new UpdateRecorder(directory)) {
+            for (int i = 1; i <= 5; i++) {
+                recorder.record(update(i, 100L));
+            }
+        }
+        final LongPollingBot bot = Mockito.mock(LongPollingBot.class);
+
+        final UpdateReplayer.ReplayReport report = new UpdateReplayer(bot).replay(directory, UpdateReplayer.Mode.AS_FAST_AS_POSSIBLE);
+
+        final ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(bot, times(5)).onUpdateReceived(captor.capture());
+        assertEquals(List.of(1, 2, 3, 4, 5), captor.getAllValues().stream().map(Update::getUpdateId).toList());
+        assertEquals(5, report.updates());
+        assertTrue(report.p99().compareTo(report.p50()) >= 0);
+    }
+
+    private static Update update(final int updateId, final Long chatId) {
+        final Chat chat = new Chat();
+        chat.setId(chatId);
+        chat.setType("private");
+        final Message message = new Message();
+        message.setMessageId(updateId);
+        message.setChat(chat);
+        message.setText("message " + updateId);
+        final Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+
+}
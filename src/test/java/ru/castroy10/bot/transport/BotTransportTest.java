@@ -0,0 +1,95 @@
+package ru.castroy10.bot.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.castroy10.TgBotBuilder;
+import ru.castroy10.bot.RouterBot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotTransportTest {
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            final String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(exchange.getRequestURI().getPath() + " " + body);
+            final String response = body.contains("\"text\":\"limit\"")
+                    ? "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests\",\"parameters\":{\"retry_after\":3}}"
+                    : "{\"ok\":true,\"result\":{\"message_id\":7,\"date\":0,\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"hi\"}}";
+            final byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.contains("\"ok\":true") ? 200 : 429, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("JDK transport executes API methods and maps error responses")
+    void testJdkTransport() throws Exception {
+        final JdkHttpBotTransport transport = new JdkHttpBotTransport();
+        verify(bot(transport));
+
+        assertEquals(HttpClient.Version.HTTP_1_1, transport.getNegotiatedVersion());
+    }
+
+    @Test
+    @DisplayName("Apache transport executes API methods and maps error responses")
+    void testApacheTransport() throws Exception {
+        final RouterBot bot = bot(null);
+        bot.setTransport(new ApacheBotTransport(bot.getOptions()));
+        verify(bot);
+    }
+
+    private void verify(final RouterBot bot) throws Exception {
+        try {
+            final Message message = bot.execute(new SendMessage("100", "hi"));
+
+            assertEquals(7, message.getMessageId());
+            assertTrue(requests.getFirst().startsWith("/bottoken/sendmessage "));
+            assertTrue(requests.getFirst().contains("\"chat_id\":\"100\""));
+
+            final TelegramApiRequestException error = assertThrows(TelegramApiRequestException.class,
+                                                                   () -> bot.execute(new SendMessage("100", "limit")));
+            assertEquals(429, error.getErrorCode());
+            assertEquals(3, error.getParameters().getRetryAfter());
+        } finally {
+            bot.onClosing();
+        }
+    }
+
+    private RouterBot bot(final BotTransport transport) {
+        return TgBotBuilder.create()
+                           .token("token")
+                           .botName("bot")
+                           .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/bot")
+                           .transport(transport)
+                           .build();
+    }
+
+}
@@ -0,0 +1,129 @@
+package ru.castroy10.bot.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import ru.castroy10.TgBotBuilder;
+import ru.castroy10.bot.RouterBot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares throughput, latency and connections used by the default Apache transport and
+ * JdkHttpBotTransport against a local stub Bot API server with a fixed service time.
+ * The stub speaks plain HTTP/1.1, so HTTP/2 multiplexing is not exercised here: the JDK has no HTTP/2 server,
+ * and HttpClient only negotiates HTTP/2 over TLS. Each JDK run prints the negotiated version; to check the HTTP/2
+ * path, execute a call through JdkHttpBotTransport against api.telegram.org and read getNegotiatedVersion().
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class TransportBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int CALLS_PER_THREAD = 100;
+    private static final long SERVICE_MILLIS = 2;
+    private static final byte[] RESPONSE = "{\"ok\":true,\"result\":{\"message_id\":1,\"date\":0,\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"hi\"}}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // Without TCP_NODELAY the stub server stalls on delayed ACKs between response headers and body.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    @Test
+    @DisplayName("Default and JDK transports under concurrent sendMessage load")
+    void benchmarkTransports() throws Exception {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.setExecutor(Executors.newFixedThreadPool(THREADS * 2));
+        server.createContext("/", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            exchange.getRequestBody().readAllBytes();
+            try {
+                TimeUnit.MILLISECONDS.sleep(SERVICE_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            exchange.getResponseBody().write(RESPONSE);
+            exchange.close();
+        });
+        server.start();
+        final String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+        try {
+            run("warmup", baseUrl, null);
+            run("apache (default)", baseUrl, null);
+            run("warmup", baseUrl, new JdkHttpBotTransport());
+            run("jdk http client", baseUrl, new JdkHttpBotTransport());
+            run("jdk http/1.1", baseUrl, new JdkHttpBotTransport(HttpClient.Version.HTTP_1_1, Duration.ofSeconds(10), Duration.ofSeconds(75), 100));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void run(final String name, final String baseUrl, final BotTransport transport) throws Exception {
+        final RouterBot bot = bot(baseUrl, transport);
+        connections.clear();
+        final ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        final List<Future<long[]>> results = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(callers.submit(() -> {
+                final long[] latencies = new long[CALLS_PER_THREAD];
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    final long callStart = System.nanoTime();
+                    bot.execute(new SendMessage("100", "hi"));
+                    latencies[i] = System.nanoTime() - callStart;
+                }
+                return latencies;
+            }));
+        }
+        final long[] latencies = new long[THREADS * CALLS_PER_THREAD];
+        int offset = 0;
+        for (final Future<long[]> result : results) {
+            final long[] threadLatencies = result.get();
+            System.arraycopy(threadLatencies, 0, latencies, offset, threadLatencies.length);
+            offset += threadLatencies.length;
+        }
+        final long elapsed = System.nanoTime() - start;
+        callers.shutdown();
+        bot.onClosing();
+
+        assertEquals(latencies.length, offset);
+        if (!name.equals("warmup")) {
+            Arrays.sort(latencies);
+            System.out.printf("%-17s %,7d calls/s, p50 %5.2f ms, p99 %6.2f ms, %d connections%s%n", name,
+                              latencies.length * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                              latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                              connections.size(),
+                              transport instanceof final JdkHttpBotTransport jdk ? ", " + jdk.getNegotiatedVersion() : "");
+        }
+    }
+
+    private static RouterBot bot(final String baseUrl, final BotTransport transport) {
+        return TgBotBuilder.create()
+                           .token("token")
+                           .botName("bot")
+                           .baseUrl(baseUrl)
+                           .transport(transport)
+                           .build();
+    }
+
+}